@@ -0,0 +1,205 @@
+package org.example;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Entry point of target/benchmarks.jar. Runs the benchmarks with the GC profiler (allocation
+// per operation), writes the results as CSV and compares them with a baseline file:
+//   java -jar target/benchmarks.jar [baseline=<csv>] [results=<csv>] [threshold=<percent>]
+//                                   [save-baseline] [JMH options, e.g. SuccessCount -f 2]
+// A score or allocation rate worse than the baseline by more than the threshold is reported
+// as a regression and the exit code is 1. save-baseline writes the results to the baseline file.
+public class BenchmarkRunner {
+    public static final String DEFAULT_BASELINE = "benchmarks/baseline.csv";
+    public static final String DEFAULT_RESULTS = "benchmarks/results.csv";
+    public static final double DEFAULT_THRESHOLD = 10.0; // percent
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+    private static final double MIN_ALLOCATION_CHANGE = 64; // bytes/op, below that it is noise
+
+    public static void main(String[] args) throws Exception {
+        Path baseline = Path.of(DEFAULT_BASELINE);
+        Path results = Path.of(DEFAULT_RESULTS);
+        double threshold = DEFAULT_THRESHOLD;
+        boolean saveBaseline = false;
+        List<String> jmhArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("baseline=")) {
+                baseline = Path.of(arg.substring("baseline=".length()));
+            } else if (arg.startsWith("results=")) {
+                results = Path.of(arg.substring("results=".length()));
+            } else if (arg.startsWith("threshold=")) {
+                threshold = Double.parseDouble(arg.substring("threshold=".length()));
+            } else if (arg.equals("save-baseline")) {
+                saveBaseline = true;
+            } else {
+                jmhArgs.add(arg);
+            }
+        }
+
+        CommandLineOptions cmd = new CommandLineOptions(jmhArgs.toArray(new String[0]));
+        if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListWithParams()
+                || cmd.shouldListProfilers() || cmd.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(jmhArgs.toArray(new String[0]));
+            return;
+        }
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(cmd);
+        if (cmd.getProfilers().stream().noneMatch(p -> p.getKlass().equals(GCProfiler.class.getName()))) {
+            options.addProfiler(GCProfiler.class);
+        }
+        Collection<RunResult> runResults = new Runner(options.build()).run();
+
+        write(runResults, results);
+        System.out.println("Results written to " + results);
+        if (saveBaseline) {
+            write(runResults, baseline);
+            System.out.println("Baseline written to " + baseline);
+            return;
+        }
+        if (!Files.exists(baseline)) {
+            System.out.println("No baseline " + baseline + " to compare with (run with save-baseline to create it)");
+            return;
+        }
+        int regressions = compare(runResults, readCSV(baseline), threshold, System.out);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static void write(Collection<RunResult> runResults, Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), true, "UTF-8")) {
+            ResultFormatFactory.getInstance(ResultFormatType.CSV, out).writeOut(runResults);
+        }
+    }
+
+    // one row of the comparison: benchmark name (":" label for secondary results), its parameters and mode
+    private static String key(String benchmark, Map<String, String> params) {
+        return benchmark + " " + params;
+    }
+
+    private static class Score {
+        final String mode;
+        final double value;
+        final String unit;
+
+        Score(String mode, double value, String unit) {
+            this.mode = mode;
+            this.value = value;
+            this.unit = unit;
+        }
+    }
+
+    // scores of a JMH CSV result file by key
+    static Map<String, Score> readCSV(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file);
+        Map<String, Score> scores = new LinkedHashMap<>();
+        if (lines.isEmpty()) return scores;
+        List<String> header = splitCSV(lines.get(0));
+        int benchmark = header.indexOf("Benchmark");
+        int mode = header.indexOf("Mode");
+        int score = header.indexOf("Score");
+        int unit = header.indexOf("Unit");
+        for (String line : lines.subList(1, lines.size())) {
+            if (line.isBlank()) continue;
+            List<String> row = splitCSV(line);
+            Map<String, String> params = new TreeMap<>();
+            for (int c = 0; c < header.size() && c < row.size(); c++) {
+                if (header.get(c).startsWith("Param: ") && !row.get(c).isEmpty()) {
+                    params.put(header.get(c).substring("Param: ".length()), row.get(c));
+                }
+            }
+            scores.put(key(row.get(benchmark), params),
+                    new Score(row.get(mode), Double.parseDouble(row.get(score)), row.get(unit)));
+        }
+        return scores;
+    }
+
+    private static List<String> splitCSV(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static Map<String, Score> scores(Collection<RunResult> runResults) {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (RunResult run : runResults) {
+            String benchmark = run.getParams().getBenchmark();
+            String mode = run.getParams().getMode().shortLabel();
+            Map<String, String> params = new TreeMap<>();
+            for (String name : run.getParams().getParamsKeys()) {
+                params.put(name, run.getParams().getParam(name));
+            }
+            Result<?> primary = run.getPrimaryResult();
+            scores.put(key(benchmark, params), new Score(mode, primary.getScore(), primary.getScoreUnit()));
+            Result<?> allocation = run.getSecondaryResults().get(ALLOCATION);
+            if (allocation != null) {
+                scores.put(key(benchmark + ":" + ALLOCATION, params),
+                        new Score(mode, allocation.getScore(), allocation.getScoreUnit()));
+            }
+        }
+        return scores;
+    }
+
+    // prints every result found in the baseline with its change, returns the number of regressions
+    static int compare(Collection<RunResult> runResults, Map<String, Score> baseline, double threshold, PrintStream out) {
+        int regressions = 0;
+        int compared = 0;
+        out.println();
+        out.printf("%-90s %14s %14s %9s%n", "Benchmark (params)", "baseline", "now", "change");
+        for (Map.Entry<String, Score> entry : scores(runResults).entrySet()) {
+            Score before = baseline.get(entry.getKey());
+            Score now = entry.getValue();
+            if (before == null || !before.mode.equals(now.mode) || !before.unit.equals(now.unit)) {
+                continue;
+            }
+            compared++;
+            boolean allocation = entry.getKey().contains(":" + ALLOCATION);
+            double change = before.value != 0 ? (now.value - before.value) / before.value * 100 : 0;
+            // throughput is better when higher, times and allocation when lower
+            double worse = now.mode.equals("thrpt") && !allocation ? -change : change;
+            boolean regression = worse > threshold
+                    && (!allocation || now.value - before.value > MIN_ALLOCATION_CHANGE);
+            if (regression) {
+                regressions++;
+            }
+            out.printf("%-90s %14.3f %14.3f %+8.1f%%%s%n", entry.getKey(), before.value, now.value, change,
+                    regression ? "  REGRESSION" : "");
+        }
+        out.println(compared + " results compared with the baseline, " + regressions
+                + " worse by more than " + threshold + "%");
+        return regressions;
+    }
+}
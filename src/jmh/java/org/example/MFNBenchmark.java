@@ -0,0 +1,96 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Model set-up and sampling: formula (1), the CDF tables, the normal quantile and the SSV draws
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MFNBenchmark {
+    @Param({"5", "50"})
+    public int m;
+
+    @Param({"4", "256", "4096"})
+    public int w;
+
+    @Param({"10000"})
+    public int N;
+
+    private MFN mfn;
+    private double[][] pmf;
+    private double[][] cdf;
+    private AliasSampler sampler;
+    private SplittableRandom rng;
+    private final double[] quantiles = new double[1024];
+
+    @Setup
+    public void setup() {
+        mfn = SyntheticNetworks.network(m, w, 1);
+        pmf = mfn.calculatePMF();
+        cdf = mfn.CDF(pmf);
+        sampler = new AliasSampler(pmf);
+        rng = new SplittableRandom(SyntheticNetworks.SEED);
+        for (int k = 0; k < quantiles.length; k++) {
+            quantiles[k] = (k + 0.5) / quantiles.length;
+        }
+    }
+
+    @Benchmark
+    public double[][] calculatePMF() {
+        return mfn.calculatePMF();
+    }
+
+    @Benchmark
+    public double[][] cdf() {
+        return mfn.CDF(pmf);
+    }
+
+    // 1024 quantiles spread over (0, 1), independent of the network parameters
+    @Benchmark
+    public void normalICDF(Blackhole bh) {
+        for (double u : quantiles) {
+            bh.consume(MFN.normalICDF(u));
+        }
+    }
+
+    // the original inverse-CDF sampler with a linear search and Math.random
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public double[][] randomSSV() {
+        return mfn.randomSSV(N, cdf);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public double[][] randomSSVAlias() {
+        return mfn.randomSSV(N, sampler, rng);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public SSVStore randomStates() {
+        return mfn.randomStates(N, sampler, rng);
+    }
+
+    @Benchmark
+    public AliasSampler aliasTables() {
+        return new AliasSampler(pmf);
+    }
+}
@@ -0,0 +1,74 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Minimal path enumeration from a topology with a few hundred links:
+//   grid    6 x 25 grid (269 links), paths of at most 29 links (the shortest ones), 118755 paths
+//   random  100 nodes, 300 links, paths of at most 9 links, 98408 paths
+// counted only, into a PathIndex and written as a CSV MP file
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MinimalPathsBenchmark {
+    @Param({"grid", "random"})
+    public String graph;
+
+    @Param({"1", "4"})
+    public int workers;
+
+    private MinimalPaths paths;
+    private ParallelEvaluator evaluator;
+    private Path csv;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Topology topology = graph.equals("grid")
+                ? SyntheticNetworks.grid(6, 25, 29)
+                : SyntheticNetworks.randomTopology(100, 300, 9, SyntheticNetworks.SEED);
+        paths = new MinimalPaths(topology);
+        evaluator = new ParallelEvaluator(workers);
+        csv = Files.createTempFile("mp-bench", ".csv");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        evaluator.close();
+        Files.deleteIfExists(csv);
+    }
+
+    @Benchmark
+    public long count() throws IOException {
+        return paths.enumerate(evaluator, (offsets, links) -> {
+        });
+    }
+
+    @Benchmark
+    public PathIndex toPathIndex() {
+        return paths.toPathIndex(evaluator);
+    }
+
+    @Benchmark
+    public long writeCSV() throws IOException {
+        return paths.write(csv, evaluator);
+    }
+}
@@ -0,0 +1,89 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Loading an MP file: the original getMPs (int[] per path), PathIndex parsing the CSV bytes
+// and mapping the binary .mpx file
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathIndexBenchmark {
+    @Param({"50"})
+    public int m;
+
+    @Param({"1000", "100000"})
+    public int paths;
+
+    private Path dir;
+    private Path csv;
+    private Path mpx;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("mp-bench");
+        csv = dir.resolve("MPs.csv");
+        mpx = dir.resolve("MPs.mpx");
+        try (BufferedWriter out = Files.newBufferedWriter(csv)) {
+            for (int[] path : SyntheticNetworks.randomPaths(m, paths, new SplittableRandom(SyntheticNetworks.SEED))) {
+                for (int j = 0; j < path.length; j++) {
+                    if (j > 0) out.write(',');
+                    out.write(Integer.toString(path[j]));
+                }
+                out.newLine();
+            }
+        }
+        PathIndex.load(csv).writeBinary(mpx);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csv);
+        Files.deleteIfExists(mpx);
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public int getMPs() {
+        MFN mfn = SyntheticNetworks.network(m, 8, 0);
+        mfn.getMPs(csv.toString());
+        return mfn.MPs.size();
+    }
+
+    @Benchmark
+    public PathIndex parseCSV() throws IOException {
+        return PathIndex.load(csv);
+    }
+
+    // mapping alone is O(1), so the links are read once as a lead time pass would
+    @Benchmark
+    public long mapBinary() throws IOException {
+        PathIndex index = PathIndex.load(mpx);
+        long sum = 0;
+        for (int j = 0; j < index.linkCount(); j++) {
+            sum += index.link(j);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,136 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Java serialization as done by setContentObject/getContentObject: the whole request with
+// N SSVs as double[][], a fused request without SSVs, and a stream chunk holding an SSVStore;
+// against it SimulationDataCodec for the same requests, plain and deflated, and a fused request
+// with its MPs inline. The message sizes of each form are printed once per trial.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({"5", "50"})
+    public int m;
+
+    @Param({"1000", "100000"})
+    public int N;
+
+    private SimulationData request;
+    private SimulationData fusedRequest;
+    private SSVChunk chunk;
+    private SimulationData inlineRequest;
+    private byte[] requestBytes;
+    private byte[] encodedRequest;
+    private byte[] compressedRequest;
+
+    @Setup
+    public void setup() throws IOException {
+        MFN mfn = SyntheticNetworks.network(m, 8, 16);
+        AliasSampler sampler = new AliasSampler(mfn.calculatePMF());
+        double[][] ssvs = mfn.randomSSV(N, sampler, new SplittableRandom(SyntheticNetworks.SEED));
+        request = new SimulationData(m, mfn.W, mfn.C, mfn.L, mfn.R, mfn.rho, "MPs.csv", ssvs);
+        fusedRequest = new SimulationData(m, mfn.W, mfn.C, mfn.L, mfn.R, mfn.rho, "MPs.csv", N, 0);
+        fusedRequest.seed = SyntheticNetworks.SEED;
+        chunk = new SSVChunk(0, mfn.randomStates(N, sampler, new SplittableRandom(SyntheticNetworks.SEED)));
+        inlineRequest = new SimulationData(m, mfn.W, mfn.C, mfn.L, mfn.R, mfn.rho, "MPs.csv", N, 0);
+        inlineRequest.seed = SyntheticNetworks.SEED;
+        inlineRequest.inlinePaths(SyntheticNetworks.network(m, 8, 1000).getPathIndex());
+        requestBytes = serialize(request);
+        encodedRequest = SimulationDataCodec.encode(request, false);
+        compressedRequest = SimulationDataCodec.encode(request, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void printSizes() throws IOException {
+        System.out.printf("%nbytes (m=%d, N=%d): request java %d, binary %d, deflated %d; fused java %d, binary %d;"
+                        + " fused with 1000 inline MPs java %d, binary %d%n", m, N,
+                requestBytes.length, encodedRequest.length, compressedRequest.length,
+                serialize(fusedRequest).length, SimulationDataCodec.encode(fusedRequest, false).length,
+                serialize(inlineRequest).length, SimulationDataCodec.encode(inlineRequest, false).length);
+    }
+
+    private static byte[] serialize(Serializable object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] writeRequest() throws IOException {
+        return serialize(request);
+    }
+
+    @Benchmark
+    public Object readRequest() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(requestBytes))) {
+            return in.readObject();
+        }
+    }
+
+    @Benchmark
+    public byte[] writeFusedRequest() throws IOException {
+        return serialize(fusedRequest);
+    }
+
+    @Benchmark
+    public byte[] writeStoreChunk() throws IOException {
+        return serialize(chunk);
+    }
+
+    @Benchmark
+    public byte[] encodeRequest() {
+        return SimulationDataCodec.encode(request, false);
+    }
+
+    @Benchmark
+    public SimulationData decodeRequest() {
+        return SimulationDataCodec.decode(encodedRequest);
+    }
+
+    @Benchmark
+    public byte[] encodeCompressedRequest() {
+        return SimulationDataCodec.encode(request, true);
+    }
+
+    @Benchmark
+    public SimulationData decodeCompressedRequest() {
+        return SimulationDataCodec.decode(compressedRequest);
+    }
+
+    @Benchmark
+    public byte[] encodeFusedRequest() {
+        return SimulationDataCodec.encode(fusedRequest, false);
+    }
+
+    @Benchmark
+    public byte[] encodeInlineRequest() {
+        return SimulationDataCodec.encode(inlineRequest, false);
+    }
+}
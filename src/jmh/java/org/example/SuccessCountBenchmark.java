@@ -0,0 +1,108 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// The TT loop: how many of N SSVs meet (d, T). The original loop over double[][] SSVs, the same
+// loop over an SSVStore, the engines (StateEvaluator.ENGINES) on a store, and the fused
+// draw-and-count run on one thread and on all cores.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class SuccessCountBenchmark {
+    @Param({"5", "50"})
+    public int m;
+
+    @Param({"8", "256"})
+    public int w;
+
+    @Param({"16", "1024"})
+    public int paths;
+
+    @Param({"100000"})
+    public int N;
+
+    private MFN mfn;
+    private double d;
+    private double T;
+    private double[][] ssvs;
+    private SSVStore store;
+    private EvaluationPlan plan;
+    private StateEvaluator bitslice;
+    private StateEvaluator simd;
+    private FusedEstimator fused;
+    private ParallelEvaluator evaluator;
+
+    @Setup
+    public void setup() {
+        mfn = SyntheticNetworks.network(m, w, paths);
+        d = SyntheticNetworks.demand(mfn);
+        T = SyntheticNetworks.deadline(mfn, d);
+        double[][] pmf = mfn.calculatePMF();
+        AliasSampler sampler = new AliasSampler(pmf);
+        ssvs = mfn.randomSSV(N, sampler, new SplittableRandom(SyntheticNetworks.SEED));
+        store = mfn.randomStates(N, sampler, new SplittableRandom(SyntheticNetworks.SEED));
+        plan = new EvaluationPlan(mfn, pmf, d, T);
+        bitslice = StateEvaluator.forEngine("bitslice", plan, m);
+        simd = StateEvaluator.forEngine("simd", plan, m);
+        fused = new FusedEstimator(mfn, pmf);
+        evaluator = new ParallelEvaluator(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown
+    public void tearDown() {
+        evaluator.close();
+    }
+
+    @Benchmark
+    public int ssvArrays() {
+        return mfn.countSuccesses(ssvs, d, T);
+    }
+
+    @Benchmark
+    public int ssvStore() {
+        return mfn.countSuccesses(store, 0, N, d, T);
+    }
+
+    @Benchmark
+    public int plan() {
+        return plan.countSuccesses(store, 0, N);
+    }
+
+    @Benchmark
+    public int bitslice() {
+        return bitslice.countSuccesses(store, 0, N);
+    }
+
+    @Benchmark
+    public int simd() {
+        return simd.countSuccesses(store, 0, N);
+    }
+
+    @Benchmark
+    public long fused() {
+        return fused.countSuccesses(N, plan, new SplittableRandom(SyntheticNetworks.SEED));
+    }
+
+    @Benchmark
+    public long fusedParallel() {
+        return evaluator.countSuccesses(FusedEstimator.blockCount(N),
+                fused.blockCounter(N, plan, SyntheticNetworks.SEED), 1);
+    }
+}
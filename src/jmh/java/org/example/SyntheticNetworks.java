@@ -0,0 +1,132 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Random networks of any size for the benchmarks. The same (m, w, paths, seed) always gives the
+// same network. Every link has w components; C, L, R and rho are drawn from ranges around the
+// values of the example network. Paths are random sets of 2..8 distinct links; they are not
+// minimal paths of a real topology, but the evaluation code does not depend on that.
+public final class SyntheticNetworks {
+    public static final long SEED = 20240601L;
+    public static final int MAX_PATH_LENGTH = 8;
+
+    private SyntheticNetworks() {
+    }
+
+    public static MFN network(int m, int w, int paths) {
+        return network(m, w, paths, SEED);
+    }
+
+    public static MFN network(int m, int w, int paths, long seed) {
+        SplittableRandom rng = new SplittableRandom(seed);
+        int[] W = new int[m];
+        double[] C = new double[m];
+        int[] L = new int[m];
+        double[] R = new double[m];
+        double[] rho = new double[m];
+        for (int i = 0; i < m; i++) {
+            W[i] = w;
+            C[i] = 5 + rng.nextInt(26);       // 5..30
+            L[i] = 1 + rng.nextInt(9);        // 1..9
+            R[i] = rng.nextDouble(0.6, 0.95);
+            rho[i] = rng.nextDouble(0.1, 0.9);
+        }
+        MFN mfn = new MFN(m, W, C, L, R, rho);
+        mfn.MPs.addAll(randomPaths(m, paths, rng));
+        return mfn;
+    }
+
+    public static List<int[]> randomPaths(int m, int count, SplittableRandom rng) {
+        List<int[]> paths = new ArrayList<>(count);
+        int maxLength = Math.min(m, MAX_PATH_LENGTH);
+        int[] links = new int[m];
+        for (int i = 0; i < m; i++) {
+            links[i] = i;
+        }
+        for (int p = 0; p < count; p++) {
+            int length = maxLength <= 2 ? maxLength : 2 + rng.nextInt(maxLength - 1);
+            // partial Fisher-Yates shuffle, the first `length` links are the path
+            for (int j = 0; j < length; j++) {
+                int k = j + rng.nextInt(m - j);
+                int tmp = links[j];
+                links[j] = links[k];
+                links[k] = tmp;
+            }
+            int[] path = new int[length];
+            System.arraycopy(links, 0, path, 0, length);
+            paths.add(path);
+        }
+        return paths;
+    }
+
+    // a demand of twice the mean link capacity
+    public static double demand(MFN mfn) {
+        double sum = 0;
+        for (double c : mfn.C) {
+            sum += c;
+        }
+        return 2 * sum / mfn.m;
+    }
+
+    // Median transmission time of the paths with all components working, so that a fair share of
+    // the SSVs succeeds and the engines neither stop at the first path nor always scan all of them.
+    public static double deadline(MFN mfn, double d) {
+        double[] allUp = new double[mfn.m];
+        for (int i = 0; i < mfn.m; i++) {
+            allUp[i] = mfn.W[i] * mfn.C[i];
+        }
+        PathIndex paths = mfn.getPathIndex();
+        double[] times = new double[paths.size()];
+        for (int p = 0; p < times.length; p++) {
+            times[p] = mfn.calculateTransmissionTime(paths, p, d, allUp);
+        }
+        Arrays.sort(times);
+        return times.length > 0 ? times[times.length / 2] : 0;
+    }
+
+    // rows x cols grid, links between neighbours usable both ways, from the top left corner
+    // to the bottom right one; rows * (cols - 1) + (rows - 1) * cols links
+    public static Topology grid(int rows, int cols, int maxLinks) {
+        int links = rows * (cols - 1) + (rows - 1) * cols;
+        int[] from = new int[links];
+        int[] to = new int[links];
+        int i = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int v = r * cols + c;
+                if (c + 1 < cols) {
+                    from[i] = v;
+                    to[i++] = v + 1;
+                }
+                if (r + 1 < rows) {
+                    from[i] = v;
+                    to[i++] = v + cols;
+                }
+            }
+        }
+        return new Topology(rows * cols, from, to, true, 0, rows * cols - 1, maxLinks);
+    }
+
+    // Connected random graph: a random spanning tree plus random further links, all usable both
+    // ways, from node 0 to node nodes - 1
+    public static Topology randomTopology(int nodes, int links, int maxLinks, long seed) {
+        SplittableRandom rng = new SplittableRandom(seed);
+        int[] from = new int[links];
+        int[] to = new int[links];
+        for (int i = 0; i < links; i++) {
+            if (i + 1 < nodes) {
+                from[i] = rng.nextInt(i + 1);
+                to[i] = i + 1;
+            } else {
+                from[i] = rng.nextInt(nodes);
+                do {
+                    to[i] = rng.nextInt(nodes);
+                } while (to[i] == from[i]);
+            }
+        }
+        return new Topology(nodes, from, to, true, 0, nodes - 1, maxLinks);
+    }
+}
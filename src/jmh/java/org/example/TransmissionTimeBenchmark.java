@@ -0,0 +1,76 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Formula (3) for every minimal path of one SSV, i.e. the inner loop of meetsDeadline,
+// with paths as int[] (the MPs list) and in the flat PathIndex
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransmissionTimeBenchmark {
+    @Param({"5", "50"})
+    public int m;
+
+    @Param({"16", "1024"})
+    public int paths;
+
+    private static final int SSVS = 64;
+
+    private MFN mfn;
+    private int[][] pathArrays;
+    private PathIndex index;
+    private double[][] ssvs;
+    private double d;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        mfn = SyntheticNetworks.network(m, 8, paths);
+        pathArrays = mfn.MPs.toArray(new int[0][]);
+        index = mfn.getPathIndex();
+        d = SyntheticNetworks.demand(mfn);
+        ssvs = mfn.randomSSV(SSVS, new AliasSampler(mfn.calculatePMF()), new SplittableRandom(SyntheticNetworks.SEED));
+    }
+
+    private double[] nextSSV() {
+        double[] ssv = ssvs[next];
+        next = (next + 1) % SSVS;
+        return ssv;
+    }
+
+    @Benchmark
+    public double pathArrays() {
+        double[] ssv = nextSSV();
+        double minTime = Double.POSITIVE_INFINITY;
+        for (int[] path : pathArrays) {
+            minTime = Math.min(minTime, mfn.calculateTransmissionTime(path, d, ssv));
+        }
+        return minTime;
+    }
+
+    @Benchmark
+    public double pathIndex() {
+        double[] ssv = nextSSV();
+        double minTime = Double.POSITIVE_INFINITY;
+        for (int p = 0; p < index.size(); p++) {
+            minTime = Math.min(minTime, mfn.calculateTransmissionTime(index, p, d, ssv));
+        }
+        return minTime;
+    }
+}
@@ -0,0 +1,72 @@
+package org.example;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.StringTokenizer;
+
+// Optional "key=value" agent arguments given after the positional ones,
+// e.g. SSVGenerator(0.01,0.01,chunk=5000,window=4)
+public class AgentArgs {
+    private final Map<String, String> options = new HashMap<>();
+
+    public AgentArgs(Object[] args, int positional) {
+        if (args == null) return;
+        for (int i = positional; i < args.length; i++) {
+            String arg = args[i].toString().trim();
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected key=value argument, got: " + arg);
+            }
+            options.put(arg.substring(0, eq).trim(), arg.substring(eq + 1).trim());
+        }
+    }
+
+    public boolean has(String key) {
+        return options.containsKey(key);
+    }
+
+    public String getString(String key, String defaultValue) {
+        return options.getOrDefault(key, defaultValue);
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = options.get(key);
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new NumberFormatException("Expected an integer for " + key + ", got: " + value);
+        }
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        String value = options.get(key);
+        try {
+            return value == null ? defaultValue : Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new NumberFormatException("Expected a number for " + key + ", got: " + value);
+        }
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = options.get(key);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    // values separated by ',', ';', spaces or '/' (the last one for agent arguments, where ',' is taken),
+    // expectedSize < 0 accepts any length
+    public static int[] parseIntArray(String text, int expectedSize) {
+        StringTokenizer st = new StringTokenizer(text, ",; /");
+        int[] arr = new int[st.countTokens()];
+        if (expectedSize >= 0 && arr.length != expectedSize) throw new IllegalArgumentException("Vector size mismatch. Expected " + expectedSize + ", got " + arr.length);
+        for (int i = 0; i < arr.length; i++) arr[i] = Integer.parseInt(st.nextToken());
+        return arr;
+    }
+
+    public static double[] parseDoubleArray(String text, int expectedSize) {
+        StringTokenizer st = new StringTokenizer(text, ",; /");
+        double[] arr = new double[st.countTokens()];
+        if (expectedSize >= 0 && arr.length != expectedSize) throw new IllegalArgumentException("Vector size mismatch. Expected " + expectedSize + ", got " + arr.length);
+        for (int i = 0; i < arr.length; i++) arr[i] = Double.parseDouble(st.nextToken());
+        return arr;
+    }
+}
@@ -0,0 +1,196 @@
+package org.example;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Totals of all runs of one agent, published over JMX (jconsole, VisualVM, jcmd) while the
+// agent lives. Runs are started with newRun and report their phases here through RunMetrics.
+public class AgentMetrics implements AgentMetricsMBean {
+    private final String name;
+    private ObjectName objectName;
+    private final AtomicLongArray nanos = new AtomicLongArray(RunMetrics.Phase.values().length);
+    private final AtomicLongArray bytes = new AtomicLongArray(RunMetrics.Phase.values().length);
+    private final AtomicLong allocated = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong samples = new AtomicLong();
+    private volatile double lastRunMillis = 0;
+    private volatile double lastSamplesPerSecond = 0;
+    private volatile String lastRunSummary = "";
+    private long runCounter = 0;
+
+    public AgentMetrics(String name) {
+        this.name = name;
+    }
+
+    // registers the MBean, a failure only costs the JMX view
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            objectName = new ObjectName("org.example:type=Agent,name=" + ObjectName.quote(name));
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName); // an earlier agent of the same name in this JVM
+            }
+            server.registerMBean(this, objectName);
+        } catch (JMException e) {
+            e.printStackTrace();
+            objectName = null;
+        }
+    }
+
+    public void unregister() {
+        if (objectName == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+        objectName = null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // kind is the ontology of the request, or the mode of a generator run
+    public synchronized RunMetrics newRun(String kind) {
+        started.incrementAndGet();
+        return new RunMetrics(this, name + "-" + (++runCounter), kind);
+    }
+
+    void record(RunMetrics.Phase phase, long phaseNanos, long phaseSamples, long phaseBytes, long phaseAllocated) {
+        nanos.addAndGet(phase.ordinal(), phaseNanos);
+        bytes.addAndGet(phase.ordinal(), phaseBytes);
+        allocated.addAndGet(Math.max(0, phaseAllocated));
+    }
+
+    void runFinished(boolean ok, long runSamples, long runNanos, String summary) {
+        (ok ? succeeded : failed).incrementAndGet();
+        samples.addAndGet(runSamples);
+        lastRunMillis = runNanos / 1e6;
+        lastSamplesPerSecond = runSamples / Math.max(1e-9, runNanos / 1e9);
+        lastRunSummary = summary;
+    }
+
+    private double millis(RunMetrics.Phase phase) {
+        return nanos.get(phase.ordinal()) / 1e6;
+    }
+
+    @Override
+    public long getRunsStarted() {
+        return started.get();
+    }
+
+    @Override
+    public long getRunsSucceeded() {
+        return succeeded.get();
+    }
+
+    @Override
+    public long getRunsFailed() {
+        return failed.get();
+    }
+
+    @Override
+    public long getRunsActive() {
+        return started.get() - succeeded.get() - failed.get();
+    }
+
+    @Override
+    public long getSamples() {
+        return samples.get();
+    }
+
+    @Override
+    public double getLastRunMillis() {
+        return lastRunMillis;
+    }
+
+    @Override
+    public double getLastSamplesPerSecond() {
+        return lastSamplesPerSecond;
+    }
+
+    @Override
+    public long getSerializedBytes() {
+        return bytes.get(RunMetrics.Phase.SERIALIZATION.ordinal());
+    }
+
+    @Override
+    public long getMessageBytes() {
+        return bytes.get(RunMetrics.Phase.MESSAGE.ordinal());
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return allocated.get();
+    }
+
+    @Override
+    public double getModelMillis() {
+        return millis(RunMetrics.Phase.MODEL);
+    }
+
+    @Override
+    public double getSamplingMillis() {
+        return millis(RunMetrics.Phase.SAMPLING);
+    }
+
+    @Override
+    public double getSerializationMillis() {
+        return millis(RunMetrics.Phase.SERIALIZATION);
+    }
+
+    @Override
+    public double getMessageMillis() {
+        return millis(RunMetrics.Phase.MESSAGE);
+    }
+
+    @Override
+    public double getExportMillis() {
+        return millis(RunMetrics.Phase.EXPORT);
+    }
+
+    @Override
+    public double getEvaluationMillis() {
+        return millis(RunMetrics.Phase.EVALUATION);
+    }
+
+    @Override
+    public double getQueueWaitMillis() {
+        return millis(RunMetrics.Phase.QUEUE_WAIT);
+    }
+
+    @Override
+    public double getRemoteMillis() {
+        return millis(RunMetrics.Phase.REMOTE);
+    }
+
+    @Override
+    public String getLastRunSummary() {
+        return lastRunSummary;
+    }
+
+    // counters of active runs stay consistent: only finished runs are forgotten
+    @Override
+    public synchronized void reset() {
+        long active = getRunsActive();
+        for (int p = 0; p < nanos.length(); p++) {
+            nanos.set(p, 0);
+            bytes.set(p, 0);
+        }
+        allocated.set(0);
+        started.set(active);
+        succeeded.set(0);
+        failed.set(0);
+        samples.set(0);
+        lastRunMillis = 0;
+        lastSamplesPerSecond = 0;
+        lastRunSummary = "";
+    }
+}
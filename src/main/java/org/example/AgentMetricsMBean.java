@@ -0,0 +1,45 @@
+package org.example;
+
+// JMX view of one agent's runs, registered as org.example:type=Agent,name=<agent> (see AgentMetrics).
+// Times are the sums over all runs; phases on worker threads may overlap.
+public interface AgentMetricsMBean {
+    long getRunsStarted();
+
+    long getRunsSucceeded();
+
+    long getRunsFailed();
+
+    long getRunsActive();
+
+    long getSamples();
+
+    double getLastRunMillis();
+
+    double getLastSamplesPerSecond();
+
+    long getSerializedBytes();
+
+    long getMessageBytes();
+
+    long getAllocatedBytes();
+
+    double getModelMillis();
+
+    double getSamplingMillis();
+
+    double getSerializationMillis();
+
+    double getMessageMillis();
+
+    double getExportMillis();
+
+    double getEvaluationMillis();
+
+    double getQueueWaitMillis();
+
+    double getRemoteMillis();
+
+    String getLastRunSummary();
+
+    void reset();
+}
@@ -0,0 +1,106 @@
+package org.example;
+
+import java.util.SplittableRandom;
+
+// Walker/Vose alias tables, one per link, built from the PMF of formula (1).
+// Drawing the number of working components of a link costs one random number
+// and one table lookup, no matter how many components the link has.
+public class AliasSampler {
+    private final double[][] prob; // probability of keeping the drawn column
+    private final int[][] alias;   // state used when the column is not kept
+
+    public AliasSampler(double[][] arPMF) {
+        int m = arPMF.length;
+        prob = new double[m][];
+        alias = new int[m][];
+        for (int i = 0; i < m; i++) {
+            buildTable(i, arPMF[i]);
+        }
+    }
+
+    // Vose's method
+    private void buildTable(int i, double[] pmf) {
+        int n = pmf.length;
+        double[] p = new double[n];
+        int[] a = new int[n];
+
+        double sum = 0;
+        for (double v : pmf) {
+            sum += Math.max(v, 0.0); // pmf[0] may be a tiny negative number after 1 - sum
+        }
+
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int k = 0; k < n; k++) {
+            scaled[k] = Math.max(pmf[k], 0.0) / sum * n;
+            if (scaled[k] < 1.0) {
+                small[smallCount++] = k;
+            } else {
+                large[largeCount++] = k;
+            }
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            int s = small[--smallCount];
+            int l = large[--largeCount];
+            p[s] = scaled[s];
+            a[s] = l;
+            scaled[l] = (scaled[l] + scaled[s]) - 1.0;
+            if (scaled[l] < 1.0) {
+                small[smallCount++] = l;
+            } else {
+                large[largeCount++] = l;
+            }
+        }
+        // what is left has probability 1 up to rounding errors
+        while (largeCount > 0) {
+            int l = large[--largeCount];
+            p[l] = 1.0;
+            a[l] = l;
+        }
+        while (smallCount > 0) {
+            int s = small[--smallCount];
+            p[s] = 1.0;
+            a[s] = s;
+        }
+
+        prob[i] = p;
+        alias[i] = a;
+    }
+
+    public int getLinkCount() {
+        return prob.length;
+    }
+
+    // number of working components of link i
+    public int sample(int i, SplittableRandom rng) {
+        double[] p = prob[i];
+        double x = rng.nextDouble() * p.length;
+        int column = Math.min((int) x, p.length - 1);
+        return (x - column) < p[column] ? column : alias[i][column];
+    }
+
+    // fills ssv with capacities k * C[i] of one random system state
+    public void fillSSV(double[] ssv, double[] C, SplittableRandom rng) {
+        for (int i = 0; i < prob.length; i++) {
+            ssv[i] = sample(i, rng) * C[i];
+        }
+    }
+
+    // states[i] = number of working components of link i in one random system state
+    public void fillStates(int[] states, SplittableRandom rng) {
+        for (int i = 0; i < prob.length; i++) {
+            states[i] = sample(i, rng);
+        }
+    }
+
+    // fills SSV n of the store with the numbers of working components of one random system state
+    public void fillStates(SSVStore store, int n, SplittableRandom rng) {
+        for (int i = 0; i < prob.length; i++) {
+            store.setState(n, i, sample(i, rng));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+// Evaluates 64 SSVs at once. For a block of 64 samples every link state is turned into
+// bit masks "state >= level", one per distinct minimum state the plan uses for that link.
+// A path is then an AND of its links' masks and the block's successes are the OR over
+// all paths, counted with Long.bitCount.
+public class BitSlicedEvaluator implements StateEvaluator {
+    private final EvaluationPlan plan;
+    private final int m;
+    private final int[][] levels;   // distinct minimum states > 0 of link i, ascending
+    private final int[] maskOffset; // masks of link i start at maskOffset[i]
+    private final int maskCount;
+    private final int[] entryMask;  // mask used by each CSR entry of the plan, -1 = always true
+
+    public BitSlicedEvaluator(EvaluationPlan plan, int m) {
+        this.plan = plan;
+        this.m = m;
+        int[] links = plan.pathLinks();
+        int[] minState = plan.minStates();
+
+        ArrayList<TreeSet<Integer>> distinct = new ArrayList<>();
+        for (int i = 0; i < m; i++) {
+            distinct.add(new TreeSet<>());
+        }
+        for (int j = 0; j < links.length; j++) {
+            if (minState[j] > 0) {
+                distinct.get(links[j]).add(minState[j]);
+            }
+        }
+
+        levels = new int[m][];
+        maskOffset = new int[m];
+        int offset = 0;
+        for (int i = 0; i < m; i++) {
+            levels[i] = distinct.get(i).stream().mapToInt(Integer::intValue).toArray();
+            maskOffset[i] = offset;
+            offset += levels[i].length;
+        }
+        maskCount = offset;
+
+        entryMask = new int[links.length];
+        for (int j = 0; j < links.length; j++) {
+            if (minState[j] == 0) {
+                entryMask[j] = -1;
+            } else {
+                entryMask[j] = maskOffset[links[j]] + Arrays.binarySearch(levels[links[j]], minState[j]);
+            }
+        }
+    }
+
+    @Override
+    public int countSuccesses(SSVStore store, int from, int to) {
+        if (plan.isAlwaysMet()) {
+            return to - from;
+        }
+        int[] pathStart = plan.pathStarts();
+        int paths = pathStart.length - 1;
+        long[] masks = new long[maskCount];
+
+        int successCount = 0;
+        for (int base = from; base < to; base += 64) {
+            int lanes = Math.min(64, to - base);
+            long valid = lanes == 64 ? -1L : (1L << lanes) - 1;
+
+            // transpose the block: bit `lane` of mask (i, l) is set iff state of link i >= levels[i][l]
+            Arrays.fill(masks, 0L);
+            for (int lane = 0; lane < lanes; lane++) {
+                long bit = 1L << lane;
+                for (int i = 0; i < m; i++) {
+                    int[] linkLevels = levels[i];
+                    if (linkLevels.length == 0) continue;
+                    int state = store.getState(base + lane, i);
+                    int offset = maskOffset[i];
+                    for (int l = 0; l < linkLevels.length && state >= linkLevels[l]; l++) {
+                        masks[offset + l] |= bit;
+                    }
+                }
+            }
+
+            long success = 0;
+            for (int p = 0; p < paths && success != valid; p++) {
+                long acc = valid & ~success; // only samples not accepted yet
+                for (int j = pathStart[p]; j < pathStart[p + 1] && acc != 0; j++) {
+                    int mask = entryMask[j];
+                    if (mask >= 0) {
+                        acc &= masks[mask];
+                    }
+                }
+                success |= acc;
+            }
+            successCount += Long.bitCount(success);
+        }
+        return successCount;
+    }
+}
@@ -0,0 +1,130 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+// Shortest transmission times of every SSV for a list of demands, collected into a
+// ReliabilityCurve. The path capacities of an SSV (formula (5)) do not depend on d, so they
+// are computed once per SSV and shared by all demands. Paths are visited in order of lead
+// time and the search stops when the lead time alone reaches the best time found so far.
+public class CurveEstimator {
+    // Histogram bins of one curve summed over the demands (8 bytes each, 128 MB at most).
+    // estimate() fills at most one curve per worker and no more than MAX_TOTAL_BINS bins in all,
+    // so a request holds at most max(MAX_BINS, MAX_TOTAL_BINS) counters = 256 MB, for any
+    // number of demands and workers.
+    private static final int MAX_BINS = 1 << 24;
+    private static final int MAX_TOTAL_BINS = 1 << 25;
+
+    private final MFN mfn;
+    private final double[] demands;
+    private final int[] pathOrder;  // paths of mfn.getPathIndex() by increasing lead time
+    private final int[] lead;       // lead time of the path pathOrder[q]
+    private final int[] firstTime;
+    private final int[] binCount;
+    private final long bins;        // binCount summed over the demands
+
+    public CurveEstimator(MFN mfn, double[] demands) {
+        for (double d : demands) {
+            if (d < 0) {
+                throw new IllegalArgumentException("Demand d must not be negative");
+            }
+        }
+        this.mfn = mfn;
+        this.demands = demands.clone();
+
+        PathIndex paths = mfn.getPathIndex();
+        Integer[] order = new Integer[paths.size()];
+        int[] pathLead = mfn.getPathLeadTimes();
+        for (int p = 0; p < order.length; p++) {
+            order[p] = p;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(pathLead[a], pathLead[b]));
+        pathOrder = new int[order.length];
+        lead = new int[order.length];
+        for (int q = 0; q < order.length; q++) {
+            pathOrder[q] = order[q];
+            lead[q] = pathLead[order[q]];
+        }
+
+        // a working path has capacity >= the smallest positive C, which bounds its time from above
+        double minCapacity = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < mfn.m; i++) {
+            if (mfn.C[i] > 0 && mfn.W[i] > 0) {
+                minCapacity = Math.min(minCapacity, mfn.C[i]);
+            }
+        }
+        firstTime = new int[demands.length];
+        binCount = new int[demands.length];
+        int minLead = lead.length > 0 ? lead[0] : 0;
+        int maxLead = lead.length > 0 ? lead[lead.length - 1] : 0;
+        long total = 0;
+        for (int k = 0; k < demands.length; k++) {
+            double maxTime = minCapacity == Double.POSITIVE_INFINITY ? minLead
+                    : maxLead + Math.ceil(this.demands[k] / minCapacity);
+            total += (long) (maxTime - minLead + 1);
+            if (total > MAX_BINS) {
+                throw new IllegalArgumentException("Demand " + this.demands[k] + " gives too many distinct transmission times"
+                        + " for a histogram (" + MAX_BINS + " bins over all demands)");
+            }
+            firstTime[k] = minLead;
+            binCount[k] = (int) (maxTime - minLead + 1);
+        }
+        bins = total;
+    }
+
+    public ReliabilityCurve emptyCurve() {
+        return new ReliabilityCurve(demands, firstTime, binCount);
+    }
+
+    // SSVs [from, to) of the store
+    public ReliabilityCurve evaluate(SSVStore store, int from, int to) {
+        ReliabilityCurve curve = emptyCurve();
+        addAll(curve, store, from, to);
+        return curve;
+    }
+
+    private void addAll(ReliabilityCurve curve, SSVStore store, int from, int to) {
+        PathIndex paths = mfn.getPathIndex();
+        double[] capacity = new double[pathOrder.length]; // NaN until needed for this SSV
+        double[] times = new double[demands.length];
+        for (int n = from; n < to; n++) {
+            Arrays.fill(capacity, Double.NaN);
+            for (int k = 0; k < demands.length; k++) {
+                double d = demands[k];
+                double minTime = Double.POSITIVE_INFINITY;
+                for (int q = 0; q < pathOrder.length && lead[q] < minTime; q++) {
+                    double cp = capacity[q];
+                    if (Double.isNaN(cp)) {
+                        cp = mfn.calculatePathCapacity(paths, pathOrder[q], store, n);
+                        capacity[q] = cp;
+                    }
+                    if (cp <= 0) {
+                        continue; // damaged path
+                    }
+                    double time = lead[q] + Math.ceil(d / cp); // formula (3)
+                    if (time < minTime) {
+                        minTime = time;
+                    }
+                }
+                times[k] = minTime;
+            }
+            curve.add(times);
+        }
+    }
+
+    // The same N SSVs as FusedEstimator.blockCounter with this seed. The blocks are split into
+    // `parts` contiguous ranges, one task and one curve each, merged in place at the end; parts is
+    // at most the number of workers and small enough for MAX_TOTAL_BINS.
+    public CompletableFuture<ReliabilityCurve> estimate(FusedEstimator fused, int N, long seed,
+                                                        ParallelEvaluator evaluator) {
+        int blocks = FusedEstimator.blockCount(N);
+        int parts = (int) Math.max(1, Math.min(Math.min(evaluator.getWorkers(), blocks), MAX_TOTAL_BINS / Math.max(1, bins)));
+        return evaluator.reduceAsync(parts, (from, to) -> {
+            ReliabilityCurve curve = emptyCurve();
+            for (int b = (int) ((long) from * blocks / parts); b < (long) to * blocks / parts; b++) {
+                fused.drawBlock(N, seed, b, (buffer, rows) -> addAll(curve, buffer, 0, rows));
+            }
+            return curve;
+        }, ReliabilityCurve::merge, 1);
+    }
+}
@@ -0,0 +1,280 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// Minimal paths compiled for one pair (d, T), built once per request.
+// By formula (3) a path p meets the deadline iff ceil(d / c_p) <= T - L_p, i.e. iff
+// every link of p has capacity >= d / floor(T - L_p). Paths with no such capacity are
+// dropped, the others are kept in CSR arrays ordered by their probability of meeting
+// the deadline, so an SSV is usually accepted by one of the first paths checked.
+public class EvaluationPlan implements StateEvaluator {
+    private final int[] pathStart;    // links of path p are links[pathStart[p] .. pathStart[p + 1])
+    private final int[] links;
+    private final double[] threshold; // minimum capacity of every link of path p
+    private final int[] minState;     // the same threshold as a minimum number of working components
+    private final int[] sourcePath;   // index of the path in MFN.getPathIndex()
+    private final double[] pathProbability;
+    private final boolean alwaysMeets; // T = +Infinity, formula (3) then accepts every state
+
+    public EvaluationPlan(MFN mfn, double d, double T) {
+        this(mfn, mfn.calculatePMF(), d, T);
+    }
+
+    public EvaluationPlan(MFN mfn, double[][] arPMF, double d, double T) {
+        if (d < 0) {
+            throw new IllegalArgumentException("Demand d must not be negative");
+        }
+        double[][] cdf = mfn.CDF(arPMF);
+        alwaysMeets = T == Double.POSITIVE_INFINITY;
+
+        ArrayList<Integer> kept = new ArrayList<>();
+        ArrayList<Double> keptThreshold = new ArrayList<>();
+        ArrayList<int[]> keptMinState = new ArrayList<>();
+        ArrayList<Double> keptProbability = new ArrayList<>();
+
+        PathIndex paths = mfn.getPathIndex();
+        int[] leadTimes = mfn.getPathLeadTimes();
+        for (int p = 0; p < paths.size(); p++) {
+            double thr = capacityThreshold(d, T - leadTimes[p]);
+            if (Double.isNaN(thr)) {
+                continue; // lead time alone exceeds T
+            }
+
+            int start = paths.start(p);
+            int[] states = new int[paths.length(p)];
+            double probability = 1.0;
+            for (int j = 0; j < states.length; j++) {
+                int link = paths.link(start + j);
+                states[j] = minState(thr, mfn.C[link]);
+                probability *= states[j] == 0 ? 1.0
+                        : states[j] > mfn.W[link] ? 0.0
+                        : 1.0 - cdf[link][states[j] - 1];
+            }
+            if (hasUnreachableState(states, paths, start, mfn.W)) {
+                continue; // needs more components than the link has
+            }
+
+            kept.add(p);
+            keptThreshold.add(thr);
+            keptMinState.add(states);
+            keptProbability.add(probability);
+        }
+
+        Integer[] order = new Integer[kept.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int cmp = Double.compare(keptProbability.get(b), keptProbability.get(a));
+            return cmp != 0 ? cmp : Integer.compare(keptMinState.get(a).length, keptMinState.get(b).length);
+        });
+
+        int planPaths = order.length;
+        pathStart = new int[planPaths + 1];
+        threshold = new double[planPaths];
+        sourcePath = new int[planPaths];
+        pathProbability = new double[planPaths];
+        int total = 0;
+        for (Integer o : order) {
+            total += keptMinState.get(o).length;
+        }
+        links = new int[total];
+        minState = new int[total];
+
+        int pos = 0;
+        for (int p = 0; p < planPaths; p++) {
+            int o = order[p];
+            int start = paths.start(kept.get(o));
+            int[] states = keptMinState.get(o);
+            pathStart[p] = pos;
+            threshold[p] = keptThreshold.get(o);
+            sourcePath[p] = kept.get(o);
+            pathProbability[p] = keptProbability.get(o);
+            for (int j = 0; j < states.length; j++) {
+                links[pos] = paths.link(start + j);
+                minState[pos] = states[j];
+                pos++;
+            }
+        }
+        pathStart[planPaths] = pos;
+    }
+
+    // Smallest capacity c for which ceil(d / c) <= slack gives the same answer as formula (3)
+    // computed in doubles, NaN if no capacity is enough. -Infinity means any state will do.
+    static double capacityThreshold(double d, double slack) {
+        if (slack == Double.POSITIVE_INFINITY) {
+            return Double.NEGATIVE_INFINITY; // the original check is then inf <= inf, always true
+        }
+        double s = Math.floor(slack); // ceil(d / c) is an integer, so it is <= slack iff <= floor(slack)
+        if (d == 0) {
+            return s >= 0 ? Double.MIN_VALUE : Double.NaN; // only a damaged path (c = 0) fails
+        }
+        if (!(s >= 1)) {
+            return Double.NaN;
+        }
+        // d / c <= s, corrected by single ulps so that rounding of d / c decides exactly as before
+        double t = d / s;
+        while (d / t > s) {
+            t = Math.nextUp(t);
+        }
+        while (Math.nextDown(t) > 0 && d / Math.nextDown(t) <= s) {
+            t = Math.nextDown(t);
+        }
+        return t;
+    }
+
+    // smallest k with k * c >= thr, computed the same way as SSV capacities; MAX_VALUE if none
+    static int minState(double thr, double c) {
+        if (thr == Double.NEGATIVE_INFINITY) {
+            return 0;
+        }
+        if (c <= 0) {
+            return thr <= 0 ? 0 : Integer.MAX_VALUE;
+        }
+        double estimate = Math.ceil(thr / c);
+        if (estimate >= Integer.MAX_VALUE) {
+            return Integer.MAX_VALUE;
+        }
+        int k = Math.max(0, (int) estimate);
+        while (k > 0 && (k - 1) * c >= thr) {
+            k--;
+        }
+        while (k * c < thr) {
+            k++;
+        }
+        return k;
+    }
+
+    private static boolean hasUnreachableState(int[] states, PathIndex paths, int start, int[] W) {
+        for (int j = 0; j < states.length; j++) {
+            if (states[j] > W[paths.link(start + j)]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // CSR arrays for the other engines, not to be modified
+    int[] pathStarts() {
+        return pathStart;
+    }
+
+    int[] pathLinks() {
+        return links;
+    }
+
+    int[] minStates() {
+        return minState;
+    }
+
+    boolean isAlwaysMet() {
+        return alwaysMeets;
+    }
+
+    public int getPathCount() {
+        return threshold.length;
+    }
+
+    public int getPathSource(int p) {
+        return sourcePath[p];
+    }
+
+    public double getPathProbability(int p) {
+        return pathProbability[p];
+    }
+
+    // same answer as MFN.meetsDeadline(ssv, d, T), stops at the first path that meets the deadline
+    public boolean meetsDeadline(double[] ssv) {
+        if (alwaysMeets) {
+            return true;
+        }
+        for (int p = 0; p < threshold.length; p++) {
+            double thr = threshold[p];
+            int end = pathStart[p + 1];
+            int j = pathStart[p];
+            while (j < end && ssv[links[j]] >= thr) {
+                j++;
+            }
+            if (j == end) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // states[i] is the number of working components of link i
+    public boolean meetsDeadline(int[] states) {
+        if (alwaysMeets) {
+            return true;
+        }
+        for (int p = 0; p < threshold.length; p++) {
+            int end = pathStart[p + 1];
+            int j = pathStart[p];
+            while (j < end && states[links[j]] >= minState[j]) {
+                j++;
+            }
+            if (j == end) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean meetsDeadline(SSVStore store, int n) {
+        if (alwaysMeets) {
+            return true;
+        }
+        for (int p = 0; p < threshold.length; p++) {
+            int end = pathStart[p + 1];
+            int j = pathStart[p];
+            while (j < end && store.getState(n, links[j]) >= minState[j]) {
+                j++;
+            }
+            if (j == end) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // index in MFN.getPathIndex() of the first path of the plan that SSV n of the store meets,
+    // -1 if none; with `only` given, paths p of the index with only[p] false are skipped
+    public int firstPath(SSVStore store, int n, boolean[] only) {
+        for (int p = 0; p < threshold.length; p++) {
+            if (only != null && !only[sourcePath[p]]) {
+                continue;
+            }
+            int end = pathStart[p + 1];
+            int j = pathStart[p];
+            while (j < end && store.getState(n, links[j]) >= minState[j]) {
+                j++;
+            }
+            if (j == end) {
+                return sourcePath[p];
+            }
+        }
+        return -1;
+    }
+
+    public int countSuccesses(double[][] ssvs, int from, int to) {
+        int successCount = 0;
+        for (int n = from; n < to; n++) {
+            if (meetsDeadline(ssvs[n])) {
+                successCount++;
+            }
+        }
+        return successCount;
+    }
+
+    @Override
+    public int countSuccesses(SSVStore store, int from, int to) {
+        int successCount = 0;
+        for (int n = from; n < to; n++) {
+            if (meetsDeadline(store, n)) {
+                successCount++;
+            }
+        }
+        return successCount;
+    }
+}
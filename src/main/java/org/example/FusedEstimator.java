@@ -0,0 +1,101 @@
+package org.example;
+
+import java.util.SplittableRandom;
+
+// Single-pass Monte Carlo: SSVs are drawn into a small reusable buffer and checked against
+// the minimal paths right away, only the success counter is kept. Memory is O(m + |MPs|)
+// for any N, but the samples themselves are not available afterwards.
+public class FusedEstimator {
+    // SSVs drawn from one split of the random generator, the unit of parallel work
+    public static final int BLOCK_SIZE = 4096;
+    // SSVs drawn before they are handed to the evaluation engine
+    public static final int BUFFER_ROWS = 1024;
+
+    private final MFN mfn;
+    private final AliasSampler sampler;
+    private final double[][] pmf;
+
+    public FusedEstimator(MFN mfn) {
+        this(mfn, mfn.calculatePMF());
+    }
+
+    public FusedEstimator(MFN mfn, double[][] pmf) {
+        this.mfn = mfn;
+        this.pmf = pmf;
+        this.sampler = new AliasSampler(pmf);
+    }
+
+    public double[][] getPMF() {
+        return pmf;
+    }
+
+    public EvaluationPlan compile(double d, double T) {
+        return new EvaluationPlan(mfn, pmf, d, T);
+    }
+
+    public long countSuccesses(int N, double d, double T, SplittableRandom rng) {
+        return countSuccesses(N, compile(d, T), rng);
+    }
+
+    // states are drawn as component counts, BUFFER_ROWS at a time, and passed to the engine
+    public long countSuccesses(int N, StateEvaluator engine, SplittableRandom rng) {
+        long[] successCount = {0};
+        draw(N, rng, (buffer, rows) -> successCount[0] += engine.countSuccesses(buffer, 0, rows));
+        return successCount[0];
+    }
+
+    // receives the first `rows` SSVs of the buffer, which is reused for the next ones afterwards
+    public interface BufferConsumer {
+        void accept(SSVStore buffer, int rows);
+    }
+
+    public void draw(int N, SplittableRandom rng, BufferConsumer consumer) {
+        SSVStore buffer = SSVStore.forNetwork(Math.min(N, BUFFER_ROWS), mfn);
+        for (int done = 0; done < N; done += BUFFER_ROWS) {
+            int rows = Math.min(BUFFER_ROWS, N - done);
+            for (int n = 0; n < rows; n++) {
+                sampler.fillStates(buffer, n, rng);
+            }
+            consumer.accept(buffer, rows);
+        }
+    }
+
+    // the SSVs of block b of N, the same ones blockCounter evaluates
+    public void drawBlock(int N, long seed, int b, BufferConsumer consumer) {
+        draw(Math.min(BLOCK_SIZE, N - b * BLOCK_SIZE), blockRandom(seed, b), consumer);
+    }
+
+    // Splits N into blocks of BLOCK_SIZE SSVs, each with its own generator derived from the
+    // seed and the block index, so the count depends only on the seed and not on the workers,
+    // and any range of blocks (e.g. one round of the sequential estimator) can be evaluated alone.
+    public ParallelEvaluator.RangeCounter blockCounter(int N, double d, double T, long seed) {
+        return blockCounter(N, compile(d, T), seed);
+    }
+
+    public ParallelEvaluator.RangeCounter blockCounter(int N, StateEvaluator engine, long seed) {
+        return (from, to) -> {
+            long successCount = 0;
+            for (int b = from; b < to; b++) {
+                int size = Math.min(BLOCK_SIZE, N - b * BLOCK_SIZE);
+                successCount += countSuccesses(size, engine, blockRandom(seed, b));
+            }
+            return successCount;
+        };
+    }
+
+    // SplitMix64 finalizer of seed and block index, gives well separated streams per block
+    static SplittableRandom blockRandom(long seed, int block) {
+        long z = seed + (block + 1L) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return new SplittableRandom(z ^ (z >>> 31));
+    }
+
+    public static int blockCount(int N) {
+        return (N + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    public long countSuccesses(int N, double d, double T, long seed, ParallelEvaluator evaluator) {
+        return evaluator.countSuccesses(blockCount(N), blockCounter(N, d, T, seed), 1);
+    }
+}
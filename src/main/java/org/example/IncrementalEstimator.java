@@ -0,0 +1,147 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Fused estimation that keeps its N SSVs and which path each of them meets between the runs of
+// one generator, so a run after the user edited a few links only redoes what the edit can change:
+//   - the state of link i of SSV n is inverseCDF(cdf_i, u), u from a generator of its own for
+//     (seed, link i, block of n), so a link whose W, R or rho changed is redrawn alone and the
+//     other links keep their states; a change of C or L changes no state at all
+//   - every SSV remembers a path it meets (its witness); it stays a success while no link of that
+//     path changed, a failed SSV is checked against the paths with a changed link only, the rest
+//     is checked in full
+// The result is the same as that of a first run with the edited network, and it differs from the
+// plain fused estimate of the same seed, whose states are drawn link after link from one generator.
+public class IncrementalEstimator {
+    private final int N;
+    private final long seed;
+    private final double d;
+    private final double T;
+    private final String pathsDigest;
+
+    private MFN mfn;           // network the samples are up to date with, null while updating
+    private SSVStore states;
+    private int[] witness;     // source index of a path SSV n meets, -1 if none
+    private long successCount;
+
+    // what the last update did
+    private boolean full;
+    private int[] resampledLinks = new int[0];
+    private final AtomicLong reevaluated = new AtomicLong();
+
+    public IncrementalEstimator(int N, long seed, double d, double T, String pathsDigest) {
+        this.N = N;
+        this.seed = seed;
+        this.d = d;
+        this.T = T;
+        this.pathsDigest = pathsDigest;
+    }
+
+    // the samples of this estimator can be updated for the request
+    public boolean matches(SimulationData data, String pathsDigest) {
+        return mfn != null && data.N == N && data.seed == seed && data.m == mfn.m
+                && this.pathsDigest != null && this.pathsDigest.equals(pathsDigest);
+    }
+
+    // Prepares the samples for the network of the model and returns the counter that updates
+    // them, over FusedEstimator.blockCount(N) blocks; its total is the new success count and has
+    // to be handed to done(). Until then the estimator matches no request.
+    public ParallelEvaluator.RangeCounter update(ModelCache.Model model) {
+        MFN next = model.mfn;
+        int m = next.m;
+        EvaluationPlan plan = model.plan(d, T);
+        boolean[] resample = new boolean[m];
+        boolean[] changed = new boolean[m];
+        full = mfn == null || states == null
+                || SSVStore.widthFor(Arrays.stream(next.W).max().orElse(0)) > states.getWidth();
+        int resampled = 0;
+        for (int i = 0; i < m; i++) {
+            resample[i] = full || next.W[i] != mfn.W[i] || next.R[i] != mfn.R[i] || next.rho[i] != mfn.rho[i];
+            changed[i] = resample[i] || next.C[i] != mfn.C[i] || next.L[i] != mfn.L[i];
+            if (resample[i]) resampled++;
+        }
+        resampledLinks = new int[resampled];
+        for (int i = 0, k = 0; i < m; i++) {
+            if (resample[i]) resampledLinks[k++] = i;
+        }
+        if (full) {
+            states = SSVStore.forNetwork(N, next);
+            witness = new int[N];
+        }
+
+        PathIndex paths = next.getPathIndex();
+        boolean[] affected = new boolean[paths.size()];
+        for (int p = 0; p < paths.size(); p++) {
+            for (int j = paths.start(p); j < paths.end(p) && !affected[p]; j++) {
+                affected[p] = changed[paths.link(j)];
+            }
+        }
+
+        mfn = null;
+        reevaluated.set(0);
+        double[][] cdf = model.cdf;
+        boolean alwaysMet = plan.isAlwaysMet();
+        boolean everyPath = full;
+        return (from, to) -> {
+            long successes = 0;
+            long checked = 0;
+            for (int b = from; b < to; b++) {
+                int first = b * FusedEstimator.BLOCK_SIZE;
+                int last = Math.min(first + FusedEstimator.BLOCK_SIZE, N);
+                for (int i : resampledLinks) {
+                    SplittableRandom rng = linkRandom(i, b);
+                    for (int n = first; n < last; n++) {
+                        states.setState(n, i, MFN.inverseCDF(cdf[i], rng.nextDouble()));
+                    }
+                }
+                if (alwaysMet) {
+                    successes += last - first;
+                    continue;
+                }
+                for (int n = first; n < last; n++) {
+                    int w = witness[n];
+                    if (everyPath || w >= 0 && affected[w]) {
+                        w = plan.firstPath(states, n, null);
+                        checked++;
+                    } else if (w < 0) {
+                        w = plan.firstPath(states, n, affected);
+                        checked++;
+                    }
+                    witness[n] = w;
+                    if (w >= 0) successes++;
+                }
+            }
+            reevaluated.addAndGet(checked);
+            return successes;
+        };
+    }
+
+    // the counter of update() has finished on the network of the model
+    public void done(ModelCache.Model model, long successCount) {
+        this.successCount = successCount;
+        this.mfn = model.mfn;
+    }
+
+    // generator of the uniforms of link i in block b
+    private SplittableRandom linkRandom(int link, int block) {
+        return FusedEstimator.blockRandom(seed ^ (0x9E3779B97F4A7C15L * (link + 1)), block);
+    }
+
+    public long getSuccessCount() {
+        return successCount;
+    }
+
+    public boolean wasFull() {
+        return full;
+    }
+
+    public int[] getResampledLinks() {
+        return resampledLinks;
+    }
+
+    public long getReevaluated() {
+        return reevaluated.get();
+    }
+}
@@ -3,7 +3,9 @@ package org.example;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.SplittableRandom;
 import java.util.StringTokenizer;
 
 public class MFN {
@@ -15,6 +17,8 @@ public class MFN {
     public double[] rho; //  vector of the correlation between the faults of the components
     public double[] beta; // beta vector
     public ArrayList<int[]> MPs; // list of minimal paths
+    private PathIndex pathIndex; // the same paths in flat arrays, see getPathIndex
+    private int[] pathLeadTimes; // formula (4) for every path of pathIndex, see getPathLeadTimes
 
     public MFN(int m, int[] W, double[] C, int[] L, double[] R, double[] rho) {
         if (W.length != m || C.length != m || L.length != m || R.length != m || rho.length != m) {
@@ -54,8 +58,7 @@ public class MFN {
         }
 
         public static double binomialCoefficient(int n, int k) {
-            if (k < 0 || k > n) return 0;
-            return factorial(n) / (factorial(k) * factorial(n - k));
+            return Numerics.binomialCoefficient(n, k);
         }
     }
 
@@ -83,33 +86,70 @@ public class MFN {
         } catch (IOException e) {
             e.printStackTrace();
         }
+        pathIndex = null;
+        pathLeadTimes = null;
     }
 
-    // Based on formula (1) - Probability Mass Function for each connection
-    public double[][] calculatePMF() {
-        double[][] pmf = new double[m][];
-
-        for (int i = 0; i < m; i++) {
-            int w_i = W[i];
-            pmf[i] = new double[w_i + 1];
+    // Loads minimal paths into a flat PathIndex without an int[] per path: a binary .mpx file
+    // is memory-mapped, a CSV file is parsed directly from bytes, the paths of a topology
+    // (.topo) are enumerated by MinimalPaths. MPs stays empty.
+    public void loadPaths(String fileName) {
+        try {
+            if (fileName.endsWith(Topology.EXTENSION)) {
+                pathIndex = enumeratePaths(Topology.load(Path.of(fileName)));
+                pathLeadTimes = null;
+                return;
+            }
+            pathIndex = PathIndex.load(Path.of(fileName));
+        } catch (IOException e) {
+            e.printStackTrace();
+            pathIndex = PathIndex.fromList(new ArrayList<>());
+        }
+        pathLeadTimes = null;
+    }
 
-            double r = R[i];
-            double b = beta[i];
+    // link i of the topology is link i of the network, so the counts must agree
+    private PathIndex enumeratePaths(Topology topology) throws IOException {
+        if (topology.linkCount != m) {
+            throw new IOException("Topology has " + topology.linkCount + " links, the network " + m);
+        }
+        try (ParallelEvaluator evaluator = new ParallelEvaluator(Runtime.getRuntime().availableProcessors())) {
+            return new MinimalPaths(topology).toPathIndex(evaluator);
+        }
+    }
 
-            // formula (1) k=0: 1 - (1/beta)*(1 - (1 - r*beta)^w_i)
+    public void setPathIndex(PathIndex pathIndex) {
+        this.pathIndex = pathIndex;
+        this.pathLeadTimes = null;
+    }
 
-            double sumProb = 0.0;
-            for (int k = 1; k <= w_i; k++) {
-                double binom = Combinatorial.binomialCoefficient(w_i, k);
-                double term1 = Math.pow(r * b, k);
-                double term2 = Math.pow(1.0 - r * b, w_i - k);
+    // paths loaded by loadPaths, or the MPs list in flat form
+    public PathIndex getPathIndex() {
+        if (pathIndex == null) {
+            pathIndex = PathIndex.fromList(MPs);
+        }
+        return pathIndex;
+    }
 
-                pmf[i][k] = (1.0 / b) * binom * term1 * term2;
-                sumProb += pmf[i][k];
+    // lead time of every path, computed once per set of paths
+    public int[] getPathLeadTimes() {
+        if (pathLeadTimes == null) {
+            PathIndex paths = getPathIndex();
+            int[] leadTimes = new int[paths.size()];
+            for (int p = 0; p < leadTimes.length; p++) {
+                leadTimes[p] = calculatePathLeadTime(paths, p);
             }
+            pathLeadTimes = leadTimes;
+        }
+        return pathLeadTimes;
+    }
 
-            // Prawdopodobieństwo dla stanu 0 to reszta z jedynki
-            pmf[i][0] = 1.0 - sumProb;
+    // Based on formula (1) - Probability Mass Function for each connection
+    // (computed by a recurrence, see Numerics.linkPMF, so w_i in the tens of thousands is fine)
+    public double[][] calculatePMF() {
+        double[][] pmf = new double[m][];
+        for (int i = 0; i < m; i++) {
+            pmf[i] = Numerics.linkPMF(W[i], R[i], beta[i]);
         }
         return pmf;
     }
@@ -129,51 +169,11 @@ public class MFN {
     }
 
     public static double normalCDF(double x) {
-        int n = 100;
-        double sum = 0;
-
-        for (int i = 0; i <= n; i++) {
-            double termNumerator = Math.pow(x, 2 * i + 1);
-            double termDenominator = doubleFactorial(2 * i + 1);
-            sum += termNumerator / termDenominator;
-        }
-
-        double coefficient = 1.0 / Math.sqrt(2 * Math.PI);
-        double expPart = Math.exp(- (x * x) / 2.0);
-
-        return 0.5 + coefficient * expPart * sum;
-    }
-
-    private static double doubleFactorial(int n) {
-        if (n <= 1) return 1;
-        double res = 1;
-        for (int i = n; i >= 1; i -= 2) {
-            res *= i;
-        }
-        return res;
+        return Numerics.normalCDF(x);
     }
 
     public static double normalICDF(double u) {
-        if (u <= 0 || u >= 1) throw new IllegalArgumentException("u must be in (0, 1)");
-
-        double low = -10.0;
-        double high = 10.0;
-        double x = 0;
-
-        // looking for x which satisfy |normalCDF(x) - u| <= 10^-10
-        while (high - low > 1e-10) {
-            x = (low + high) / 2.0;
-            double cdfVal = normalCDF(x);
-
-            if (Math.abs(cdfVal - u) <= 1e-10) {
-                return x;
-            } else if (cdfVal < u) {
-                low = x;
-            } else {
-                high = x;
-            }
-        }
-        return x;
+        return Numerics.normalICDF(u);
     }
 
     //(Fishman 12b)
@@ -208,8 +208,97 @@ public class MFN {
         return generatedSSVs;
     }
 
+    // first k for which cdf[k] >= u (binary search version of the loop in randomSSV)
+    public static int inverseCDF(double[] cdf, double u) {
+        int low = 0;
+        int high = cdf.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cdf[mid] < u) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Generating random SSV with alias tables, O(1) per link and reproducible for a seeded rng
+    public double[][] randomSSV(int N, AliasSampler sampler, SplittableRandom rng) {
+        double[][] generatedSSVs = new double[N][m];
+        for (int n = 0; n < N; n++) {
+            sampler.fillSSV(generatedSSVs[n], C, rng);
+        }
+        return generatedSSVs;
+    }
+
+    // Same as above, but the states are kept as component counts in a compact SSVStore
+    public SSVStore randomStates(int N, AliasSampler sampler, SplittableRandom rng) {
+        SSVStore store = SSVStore.forNetwork(N, this);
+        for (int n = 0; n < N; n++) {
+            sampler.fillStates(store, n, rng);
+        }
+        return store;
+    }
+
     // helper methods for TT agent
 
+    // counts SSVs in which d units can be sent within time T over at least one minimal path
+    public int countSuccesses(double[][] ssvs, double d, double T) {
+        return countSuccesses(ssvs, 0, ssvs.length, d, T);
+    }
+
+    // same as above for SSVs with indices in [from, to)
+    public int countSuccesses(double[][] ssvs, int from, int to, double d, double T) {
+        int successCount = 0;
+
+        // Iterating on each vector ( Monte Carlo)
+        for (int n = from; n < to; n++) {
+            if (meetsDeadline(ssvs[n], d, T)) {
+                successCount++;
+            }
+        }
+        return successCount;
+    }
+
+    // true if d units can be sent within time T in the state ssv
+    public boolean meetsDeadline(double[] ssv, double d, double T) {
+        // for each state we look for shortest path
+        double minTime = Double.POSITIVE_INFINITY;
+
+        // checking each minimal path
+        PathIndex paths = getPathIndex();
+        for (int p = 0; p < paths.size(); p++) {
+            // calculating transmision time for path in this state
+            double time = calculateTransmissionTime(paths, p, d, ssv);
+            if (time < minTime) {
+                minTime = time;
+            }
+        }
+
+        // if shortest time is smaller than T -> success
+        return minTime <= T;
+    }
+
+    // counts successful SSVs with indices in [from, to) of the store
+    public int countSuccesses(SSVStore store, int from, int to, double d, double T) {
+        PathIndex paths = getPathIndex();
+        int successCount = 0;
+        for (int n = from; n < to; n++) {
+            double minTime = Double.POSITIVE_INFINITY;
+            for (int p = 0; p < paths.size(); p++) {
+                double time = calculateTransmissionTime(paths, p, d, store, n);
+                if (time < minTime) {
+                    minTime = time;
+                }
+            }
+            if (minTime <= T) {
+                successCount++;
+            }
+        }
+        return successCount;
+    }
+
     // formula (3)
     public double calculateTransmissionTime(int[] path, double d, double[] ssv) {
         double cp = calculatePathCapacity(path, ssv);
@@ -220,6 +309,36 @@ public class MFN {
         return lp + Math.ceil(d / cp);
     }
 
+    // formula (3) for SSV n of the store
+    public double calculateTransmissionTime(int[] path, double d, SSVStore store, int n) {
+        double cp = calculatePathCapacity(path, store, n);
+        if (cp <= 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        int lp = calculatePathLeadTime(path);
+        return lp + Math.ceil(d / cp);
+    }
+
+    // formula (3) for path p of the index
+    public double calculateTransmissionTime(PathIndex paths, int p, double d, double[] ssv) {
+        double cp = calculatePathCapacity(paths, p, ssv);
+        if (cp <= 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        int lp = calculatePathLeadTime(paths, p);
+        return lp + Math.ceil(d / cp);
+    }
+
+    // formula (3) for path p of the index and SSV n of the store
+    public double calculateTransmissionTime(PathIndex paths, int p, double d, SSVStore store, int n) {
+        double cp = calculatePathCapacity(paths, p, store, n);
+        if (cp <= 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        int lp = calculatePathLeadTime(paths, p);
+        return lp + Math.ceil(d / cp);
+    }
+
     // formula (4)
     public int calculatePathLeadTime(int[] path) {
         int sumL = 0;
@@ -240,4 +359,49 @@ public class MFN {
         }
         return minCap;
     }
+
+    // Formula (5) for SSV n of the store
+    public double calculatePathCapacity(int[] path, SSVStore store, int n) {
+        double minCap = Double.MAX_VALUE;
+        for (int linkIdx : path) {
+            double cap = store.getCapacity(n, linkIdx, C);
+            if (cap < minCap) {
+                minCap = cap;
+            }
+        }
+        return minCap;
+    }
+
+    // formula (4) for path p of the index
+    public int calculatePathLeadTime(PathIndex paths, int p) {
+        int sumL = 0;
+        for (int j = paths.start(p); j < paths.end(p); j++) {
+            sumL += L[paths.link(j)];
+        }
+        return sumL;
+    }
+
+    // Formula (5) for path p of the index
+    public double calculatePathCapacity(PathIndex paths, int p, double[] ssv) {
+        double minCap = Double.MAX_VALUE;
+        for (int j = paths.start(p); j < paths.end(p); j++) {
+            double cap = ssv[paths.link(j)];
+            if (cap < minCap) {
+                minCap = cap;
+            }
+        }
+        return minCap;
+    }
+
+    // Formula (5) for path p of the index and SSV n of the store
+    public double calculatePathCapacity(PathIndex paths, int p, SSVStore store, int n) {
+        double minCap = Double.MAX_VALUE;
+        for (int j = paths.start(p); j < paths.end(p); j++) {
+            double cap = store.getCapacity(n, paths.link(j), C);
+            if (cap < minCap) {
+                minCap = cap;
+            }
+        }
+        return minCap;
+    }
 }
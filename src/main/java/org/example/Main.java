@@ -1,3 +1,341 @@
 // komenda do kompilacji agentów
 // javac -d classes -cp lib\jade.jar src\main\java\org\example\*.java
-//java -cp "lib\jade.jar;classes" jade.Boot -gui -agents "SSVAgent:org.example.SSVGenerator(0.01,0.01);TTAgent:org.example.TT(42,15.5)"
\ No newline at end of file
+//java -cp "lib\jade.jar;classes" jade.Boot -gui -agents "SSVAgent:org.example.SSVGenerator(0.01,0.01);TTAgent:org.example.TT(42,15.5)"
+// kilka agentów TT w jednej platformie, generator bez GUI dzieli pracę między nie
+//java -cp "lib\jade.jar;classes" jade.Boot -agents "TT1:org.example.TT(42,15.5);TT2:org.example.TT(42,15.5);SSVAgent:org.example.SSVGenerator(0.01,0.01,mode=coordinator,gui=false,mps=MPs.csv)"
+// scenariusze bez JADE i bez GUI
+//java -cp classes org.example.Main scenarios.txt jobs=4 out=results.csv
+package org.example;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Headless batch runner: many (network, MP file, d, T, epsilon, delta, seed) scenarios are
+// estimated without JADE or Swing and the results are written as CSV or JSON.
+//
+//   java -cp classes org.example.Main <scenario file> [jobs=2] [workers=<cores>] [out=<file>] [format=csv|json]
+//
+// Scenario file: one scenario per line as key=value tokens separated by spaces, '#' starts a
+// comment. A line starting with "defaults" sets values for the lines after it. Keys:
+//   name, mps (MP file, relative to the scenario file), W, C, L, R, rho (vectors as "4,3,2,3,2";
+//   the example network of the GUI when missing), d, T, epsilon, delta (default 0.01), seed,
+//   adaptive=true, sampling=<SamplingStrategy.NAMES>, tilt, engine (StateEvaluator.ENGINES)
+// e.g.
+//   defaults mps=MPs.csv epsilon=0.01 delta=0.01
+//   name=base d=42 T=15.5 seed=5
+//   name=faster-link-3 d=42 T=15.5 seed=5 R=0.7,0.65,0.9,0.71,0.75
+//
+// Each scenario is estimated like a fused request of SSVGenerator(epsilon, delta, seed=<seed>)
+// to TT(d, T): N from formula (12b), the run seed is the first nextLong() of the generator's
+// SplittableRandom and the blocks are counted as in TT, so the results equal the agents' ones.
+// Scenarios run on `jobs` threads, their samples are counted on `workers` shared threads.
+public class Main {
+    static class Scenario {
+        int line;
+        String name;
+        Path mps;
+        int[] W;
+        double[] C;
+        int[] L;
+        double[] R;
+        double[] rho;
+        double d;
+        double T;
+        double epsilon;
+        double delta;
+        long seed;
+        boolean adaptive;
+        String sampling;
+        double tilt;
+        String engine;
+
+        String mode() {
+            return adaptive ? "adaptive" : sampling != null ? sampling : "fused";
+        }
+    }
+
+    static class Result {
+        Scenario scenario;
+        int paths;
+        int N;
+        long samples;
+        double reliability = Double.NaN;
+        double halfWidth = Double.NaN;  // Wilson interval at 1 - delta (fused and adaptive)
+        double variance = Double.NaN;   // variance of the weighted estimate (sampling=...)
+        long millis;
+        String error;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("usage: Main <scenario file> [jobs=2] [workers=<cores>] [out=<file>] [format=csv|json]");
+            System.exit(2);
+        }
+        AgentArgs options = new AgentArgs(args, 1);
+        int jobs = options.getInt("jobs", 2);
+        int workers = options.getInt("workers", Runtime.getRuntime().availableProcessors());
+        String out = options.getString("out", null);
+        String format = options.getString("format", out != null && out.endsWith(".json") ? "json" : "csv");
+        if (jobs <= 0 || workers <= 0 || !(format.equals("csv") || format.equals("json"))) {
+            System.err.println("jobs and workers must be positive, format csv or json");
+            System.exit(2);
+        }
+
+        long start = System.nanoTime();
+        List<Scenario> scenarios = readScenarios(Path.of(args[0]));
+        List<Result> results = runAll(scenarios, jobs, workers);
+
+        if (out == null) {
+            write(results, format, new PrintStream(System.out, true));
+        } else {
+            try (Writer writer = Files.newBufferedWriter(Path.of(out))) {
+                write(results, format, writer);
+            }
+        }
+        long failed = results.stream().filter(r -> r.error != null).count();
+        System.err.println(scenarios.size() + " scenarios in " + (System.nanoTime() - start) / 1_000_000 + " ms, "
+                + failed + " failed" + (out != null ? ", results written to " + out : ""));
+        System.exit(failed > 0 ? 1 : 0);
+    }
+
+    // A scenario is queued only when a job thread is about to be free (the queue holds `jobs`
+    // scenarios, the reading thread runs one itself when it is full), results keep the file order.
+    static List<Result> runAll(List<Scenario> scenarios, int jobs, int workers) throws InterruptedException {
+        ModelCache models = new ModelCache(256_000_000L);
+        List<Result> results = new ArrayList<>();
+        try (ParallelEvaluator evaluator = new ParallelEvaluator(workers)) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(jobs, jobs, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(jobs), new ThreadPoolExecutor.CallerRunsPolicy());
+            List<Future<Result>> futures = new ArrayList<>();
+            int[] done = {0};
+            for (Scenario scenario : scenarios) {
+                futures.add(executor.submit(() -> {
+                    Result result = run(scenario, models, evaluator);
+                    synchronized (done) {
+                        done[0]++;
+                        System.err.println("[" + done[0] + "/" + scenarios.size() + "] " + scenario.name + ": "
+                                + (result.error != null ? "failed, " + result.error : "reliability " + result.reliability)
+                                + " in " + result.millis + " ms");
+                    }
+                    return result;
+                }));
+            }
+            executor.shutdown();
+            for (Future<Result> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause()); // run() reports its own errors
+                }
+            }
+        }
+        return results;
+    }
+
+    static Result run(Scenario s, ModelCache models, ParallelEvaluator evaluator) {
+        Result result = new Result();
+        result.scenario = s;
+        long start = System.nanoTime();
+        try {
+            if (!Files.isReadable(s.mps)) {
+                throw new IOException("MP file not readable: " + s.mps);
+            }
+            // as in SSVGenerator.setup, formula 12b of Fishman
+            double z = MFN.normalICDF(1.0 - (s.delta / 2.0));
+            double val = z / (2.0 * s.epsilon);
+            int N = (int) Math.ceil(val * val);
+            result.N = N;
+
+            SimulationData data = new SimulationData(s.W.length, s.W, s.C, s.L, s.R, s.rho, s.mps.toString(), N, 0);
+            ModelCache.Model model;
+            synchronized (models) {
+                model = models.get(data);
+            }
+            result.paths = model.mfn.getPathIndex().size();
+            long seed = new SplittableRandom(s.seed).nextLong(); // data.seed of the generator's first run
+            StateEvaluator engine = model.engine(s.engine, s.d, s.T);
+
+            if (s.adaptive) {
+                SequentialEstimator.Result r = new SequentialEstimator(s.epsilon, s.delta, N)
+                        .estimate(model.fused, engine, seed, evaluator);
+                result.samples = r.samplesUsed;
+                result.reliability = r.reliability;
+                result.halfWidth = r.halfWidth;
+            } else if (s.sampling != null) {
+                SamplingStrategy strategy = SamplingStrategy.forName(s.sampling, model.mfn, model.pmf, s.tilt);
+                WeightedEstimator.Result r = new WeightedEstimator(model.mfn, model.plan(s.d, s.T))
+                        .estimate(s.sampling, strategy, N, seed, evaluator);
+                result.samples = N;
+                result.reliability = r.estimate;
+                result.variance = r.variance;
+            } else {
+                long successCount = evaluator.countSuccesses(FusedEstimator.blockCount(N),
+                        model.fused.blockCounter(N, engine, seed), 1);
+                result.samples = N;
+                result.reliability = (double) successCount / N;
+                result.halfWidth = SequentialEstimator.wilsonHalfWidth(successCount, N, z);
+            }
+        } catch (IOException | RuntimeException e) {
+            result.error = e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+        result.millis = (System.nanoTime() - start) / 1_000_000;
+        return result;
+    }
+
+    static List<Scenario> readScenarios(Path file) throws IOException {
+        List<Scenario> scenarios = new ArrayList<>();
+        Map<String, String> defaults = new HashMap<>();
+        Path dir = file.toAbsolutePath().getParent();
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                int comment = line.indexOf('#');
+                if (comment >= 0) line = line.substring(0, comment);
+                line = line.trim();
+                if (line.isEmpty()) continue;
+
+                String[] tokens = line.split("\\s+");
+                boolean isDefaults = tokens[0].equals("defaults");
+                Map<String, String> values = isDefaults ? defaults : new HashMap<>(defaults);
+                for (int i = isDefaults ? 1 : 0; i < tokens.length; i++) {
+                    int eq = tokens[i].indexOf('=');
+                    if (eq <= 0) {
+                        throw new IllegalArgumentException(file + ":" + lineNumber + ": expected key=value, got " + tokens[i]);
+                    }
+                    values.put(tokens[i].substring(0, eq), tokens[i].substring(eq + 1));
+                }
+                if (!isDefaults) {
+                    try {
+                        scenarios.add(parseScenario(values, lineNumber, dir));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException(file + ":" + lineNumber + ": " + e.getMessage(), e);
+                    }
+                }
+            }
+        }
+        return scenarios;
+    }
+
+    private static Scenario parseScenario(Map<String, String> values, int line, Path dir) {
+        Scenario s = new Scenario();
+        s.line = line;
+        s.name = values.getOrDefault("name", "line-" + line);
+        s.mps = dir.resolve(required(values, "mps"));
+        s.W = AgentArgs.parseIntArray(values.getOrDefault("W", SSVGeneratorGui.DEFAULT_W), -1);
+        int m = s.W.length;
+        s.C = AgentArgs.parseDoubleArray(values.getOrDefault("C", SSVGeneratorGui.DEFAULT_C), m);
+        s.L = AgentArgs.parseIntArray(values.getOrDefault("L", SSVGeneratorGui.DEFAULT_L), m);
+        s.R = AgentArgs.parseDoubleArray(values.getOrDefault("R", SSVGeneratorGui.DEFAULT_R), m);
+        s.rho = AgentArgs.parseDoubleArray(values.getOrDefault("rho", SSVGeneratorGui.DEFAULT_RHO), m);
+        s.d = Double.parseDouble(required(values, "d"));
+        s.T = Double.parseDouble(required(values, "T"));
+        s.epsilon = Double.parseDouble(values.getOrDefault("epsilon", "0.01"));
+        s.delta = Double.parseDouble(values.getOrDefault("delta", "0.01"));
+        s.seed = Long.parseLong(required(values, "seed"));
+        s.adaptive = Boolean.parseBoolean(values.getOrDefault("adaptive", "false"));
+        s.sampling = values.get("sampling");
+        s.tilt = Double.parseDouble(values.getOrDefault("tilt", "3.0"));
+        s.engine = values.getOrDefault("engine", "plan");
+
+        if (s.epsilon <= 0 || s.epsilon >= 1 || s.delta <= 0 || s.delta >= 1) {
+            throw new IllegalArgumentException("Epsilon and Delta must be in range (0, 1).");
+        }
+        if (s.sampling != null && (s.adaptive || !SamplingStrategy.NAMES.contains(s.sampling))) {
+            throw new IllegalArgumentException("sampling must be one of " + SamplingStrategy.NAMES + " and not adaptive");
+        }
+        if (!StateEvaluator.ENGINES.contains(s.engine)) {
+            throw new IllegalArgumentException("engine must be one of " + StateEvaluator.ENGINES);
+        }
+        new MFN(m, s.W, s.C, s.L, s.R, s.rho); // checks the vectors
+        return s;
+    }
+
+    private static String required(Map<String, String> values, String key) {
+        String value = values.get(key);
+        if (value == null) {
+            throw new IllegalArgumentException("missing " + key + "=");
+        }
+        return value;
+    }
+
+    static void write(List<Result> results, String format, Appendable out) throws IOException {
+        String[] columns = {"name", "line", "mps", "m", "paths", "d", "T", "epsilon", "delta", "seed", "mode",
+                "N", "samples", "reliability", "half_width", "variance", "millis", "error"};
+        if (format.equals("csv")) {
+            out.append(String.join(",", columns)).append(System.lineSeparator());
+            for (Result r : results) {
+                Object[] row = row(r);
+                StringBuilder sb = new StringBuilder();
+                for (int c = 0; c < row.length; c++) {
+                    if (c > 0) sb.append(',');
+                    sb.append(csv(row[c]));
+                }
+                out.append(sb).append(System.lineSeparator());
+            }
+        } else {
+            out.append("[").append(System.lineSeparator());
+            for (int i = 0; i < results.size(); i++) {
+                Object[] row = row(results.get(i));
+                StringBuilder sb = new StringBuilder("  {");
+                for (int c = 0; c < row.length; c++) {
+                    if (c > 0) sb.append(", ");
+                    sb.append('"').append(columns[c]).append("\": ").append(json(row[c]));
+                }
+                sb.append(i < results.size() - 1 ? "}," : "}");
+                out.append(sb).append(System.lineSeparator());
+            }
+            out.append("]").append(System.lineSeparator());
+        }
+    }
+
+    private static Object[] row(Result r) {
+        Scenario s = r.scenario;
+        return new Object[]{s.name, s.line, s.mps.toString(), s.W.length, r.paths, s.d, s.T, s.epsilon, s.delta,
+                s.seed, s.mode(), r.N, r.samples, r.reliability, r.halfWidth, r.variance, r.millis, r.error};
+    }
+
+    // numbers as Double.toString, the way TT prints the reliability; missing values are empty
+    private static String csv(Object value) {
+        if (value == null || (value instanceof Double && ((Double) value).isNaN())) return "";
+        String text = value.toString();
+        if (text.contains(",") || text.contains("\"") || text.contains("\n")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+
+    // JSON has no NaN or infinity: NaN is a missing value (null), T = Infinity and infinite
+    // estimates are written as the strings "Infinity" and "-Infinity"
+    private static String json(Object value) {
+        if (value == null || (value instanceof Double && ((Double) value).isNaN())) return "null";
+        if (value instanceof Number && !(value instanceof Double && ((Double) value).isInfinite())) return value.toString();
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : value.toString().toCharArray()) {
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,277 @@
+package org.example;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// All minimal paths from the source to the sink of a Topology, instead of an MP file made
+// offline. A path that visits no node twice is minimal (no proper subset of its links connects
+// the source with the sink), so the search is a DFS over simple paths:
+//   - iterative, with the path, the next arc of every node and the visited nodes (a bitset) in
+//     arrays, nothing is allocated per path
+//   - a node is not entered if the sink cannot be reached from it within max-links links (BFS
+//     distances to the sink, computed once), so dead ends and too long paths are cut early
+//   - the first hops from the source are expanded until there are a few prefixes per worker,
+//     each prefix is searched as a task of its own on the ParallelEvaluator
+// The paths of the tasks are passed on in task order as soon as all earlier tasks are done,
+// so the result is the same for any number of workers: DFS order, arcs in link order.
+//
+//   java org.example.MinimalPaths network.topo MPs.csv|MPs.mpx [max-links]
+public class MinimalPaths {
+    private static final int UNREACHABLE = Integer.MAX_VALUE / 2;
+    private static final int TASKS_PER_WORKER = 8;
+    private static final int MAX_PREFIX_LINKS = 4;
+
+    private final Topology topology;
+    private final int maxLinks;
+    private final int[] distance; // fewest links from a node to the sink
+
+    // receives the paths of one task after those of all earlier tasks
+    public interface PathConsumer {
+        void accept(PathIndex.IntList offsets, PathIndex.IntList links) throws IOException;
+    }
+
+    public MinimalPaths(Topology topology) {
+        this(topology, topology.maxLinks);
+    }
+
+    public MinimalPaths(Topology topology, int maxLinks) {
+        this.topology = topology;
+        this.maxLinks = Math.min(maxLinks, topology.nodeCount - 1);
+        this.distance = distancesToSink(topology);
+    }
+
+    // BFS from the sink over the arcs backwards
+    private static int[] distancesToSink(Topology t) {
+        int[] reverseStart = new int[t.nodeCount + 1];
+        for (int a = 0; a < t.arcNode.length; a++) {
+            reverseStart[t.arcNode[a] + 1]++;
+        }
+        for (int v = 0; v < t.nodeCount; v++) {
+            reverseStart[v + 1] += reverseStart[v];
+        }
+        int[] reverseNode = new int[t.arcNode.length];
+        int[] next = reverseStart.clone();
+        for (int v = 0; v < t.nodeCount; v++) {
+            for (int a = t.arcStart[v]; a < t.arcStart[v + 1]; a++) {
+                reverseNode[next[t.arcNode[a]]++] = v;
+            }
+        }
+        int[] distance = new int[t.nodeCount];
+        Arrays.fill(distance, UNREACHABLE);
+        int[] queue = new int[t.nodeCount];
+        int head = 0;
+        int tail = 0;
+        distance[t.sink] = 0;
+        queue[tail++] = t.sink;
+        while (head < tail) {
+            int v = queue[head++];
+            for (int a = reverseStart[v]; a < reverseStart[v + 1]; a++) {
+                int u = reverseNode[a];
+                if (distance[u] == UNREACHABLE) {
+                    distance[u] = distance[v] + 1;
+                    queue[tail++] = u;
+                }
+            }
+        }
+        return distance;
+    }
+
+    // a path of the first hops, searched further by one task
+    private static class Prefix {
+        final int node;
+        final long[] visited;
+        final int[] links;
+
+        Prefix(int node, long[] visited, int[] links) {
+            this.node = node;
+            this.visited = visited;
+            this.links = links;
+        }
+    }
+
+    // prefixes in DFS order; a prefix that ended at the sink is a whole path
+    private List<Prefix> prefixes(int tasks) {
+        long[] start = new long[(topology.nodeCount + 63) >>> 6];
+        start[topology.source >>> 6] |= 1L << topology.source;
+        List<Prefix> prefixes = new ArrayList<>();
+        prefixes.add(new Prefix(topology.source, start, new int[0]));
+        for (int depth = 0; depth < MAX_PREFIX_LINKS && prefixes.size() < tasks; depth++) {
+            List<Prefix> expanded = new ArrayList<>();
+            boolean grown = false;
+            for (Prefix prefix : prefixes) {
+                if (prefix.node == topology.sink) {
+                    expanded.add(prefix);
+                    continue;
+                }
+                grown = true;
+                for (int a = topology.arcStart[prefix.node]; a < topology.arcStart[prefix.node + 1]; a++) {
+                    int next = topology.arcNode[a];
+                    if (!canEnter(prefix.visited, next, depth + 1)) continue;
+                    long[] visited = prefix.visited.clone();
+                    visited[next >>> 6] |= 1L << next;
+                    int[] links = Arrays.copyOf(prefix.links, depth + 1);
+                    links[depth] = topology.arcLink[a];
+                    expanded.add(new Prefix(next, visited, links));
+                }
+            }
+            prefixes = expanded;
+            if (!grown) break;
+        }
+        return prefixes;
+    }
+
+    // a path of `links` links may go on to `next`
+    private boolean canEnter(long[] visited, int next, int links) {
+        return (visited[next >>> 6] & (1L << next)) == 0 && links + distance[next] <= maxLinks;
+    }
+
+    // iterative DFS from the end of the prefix, the paths are appended to offsets and links
+    private void search(Prefix prefix, PathIndex.IntList offsets, PathIndex.IntList links) {
+        int base = prefix.links.length;
+        if (prefix.node == topology.sink) {
+            append(prefix.links, base, offsets, links);
+            return;
+        }
+        int[] arcStart = topology.arcStart;
+        int[] arcNode = topology.arcNode;
+        int[] arcLink = topology.arcLink;
+        int sink = topology.sink;
+        long[] visited = prefix.visited.clone();
+        int size = maxLinks + 1;
+        int[] nodeAt = new int[size];   // node at each depth
+        int[] nextArc = new int[size];  // next arc to try from it
+        int[] path = Arrays.copyOf(prefix.links, size);
+        int depth = base;
+        nodeAt[depth] = prefix.node;
+        nextArc[depth] = arcStart[prefix.node];
+        while (depth >= base) {
+            int node = nodeAt[depth];
+            int a = nextArc[depth];
+            if (a == arcStart[node + 1]) {
+                if (depth > base) {
+                    visited[node >>> 6] &= ~(1L << node);
+                }
+                depth--;
+                continue;
+            }
+            nextArc[depth] = a + 1;
+            int next = arcNode[a];
+            if (!canEnter(visited, next, depth + 1)) continue;
+            path[depth] = arcLink[a];
+            if (next == sink) {
+                append(path, depth + 1, offsets, links);
+                continue;
+            }
+            visited[next >>> 6] |= 1L << next;
+            depth++;
+            nodeAt[depth] = next;
+            nextArc[depth] = arcStart[next];
+        }
+    }
+
+    private static void append(int[] path, int length, PathIndex.IntList offsets, PathIndex.IntList links) {
+        offsets.add(links.size());
+        for (int j = 0; j < length; j++) {
+            links.add(path[j]);
+        }
+    }
+
+    // Searches the prefixes on the workers and hands the paths of each task to the consumer in
+    // task order; returns the number of paths.
+    public long enumerate(ParallelEvaluator evaluator, PathConsumer consumer) throws IOException {
+        List<Prefix> prefixes = prefixes(evaluator.getWorkers() * TASKS_PER_WORKER);
+        PathIndex.IntList[][] done = new PathIndex.IntList[prefixes.size()][];
+        int[] next = {0};     // first task not yet passed on
+        long[] passed = {0};  // paths passed on
+        try {
+            evaluator.forEachRange(prefixes.size(), (from, to) -> {
+                for (int task = from; task < to; task++) {
+                    PathIndex.IntList offsets = new PathIndex.IntList();
+                    PathIndex.IntList links = new PathIndex.IntList();
+                    search(prefixes.get(task), offsets, links);
+                    synchronized (done) {
+                        done[task] = new PathIndex.IntList[]{offsets, links};
+                        while (next[0] < done.length && done[next[0]] != null) {
+                            try {
+                                consumer.accept(done[next[0]][0], done[next[0]][1]);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                            passed[0] += done[next[0]][0].size();
+                            done[next[0]++] = null;
+                        }
+                    }
+                }
+            }, 1);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return passed[0];
+    }
+
+    public PathIndex toPathIndex(ParallelEvaluator evaluator) {
+        PathIndex.IntList offsets = new PathIndex.IntList();
+        PathIndex.IntList links = new PathIndex.IntList();
+        try {
+            enumerate(evaluator, (taskOffsets, taskLinks) -> {
+                int shift = links.size();
+                for (int p = 0; p < taskOffsets.size(); p++) {
+                    offsets.add(taskOffsets.get(p) + shift);
+                }
+                links.addAll(taskLinks);
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // the consumer does no I/O
+        }
+        int pathCount = offsets.size();
+        offsets.add(links.size());
+        return PathIndex.of(offsets.toArray(), links.toArray(), pathCount);
+    }
+
+    // a binary .mpx file (built in memory first, its header needs the counts) or a CSV file
+    // written while the search goes on; returns the number of paths
+    public long write(Path file, ParallelEvaluator evaluator) throws IOException {
+        if (file.toString().endsWith(".mpx")) {
+            PathIndex index = toPathIndex(evaluator);
+            index.writeBinary(file);
+            return index.size();
+        }
+        try (Writer out = new BufferedWriter(Files.newBufferedWriter(file), 1 << 16)) {
+            StringBuilder line = new StringBuilder();
+            return enumerate(evaluator, (offsets, links) -> {
+                for (int p = 0; p < offsets.size(); p++) {
+                    int end = p + 1 < offsets.size() ? offsets.get(p + 1) : links.size();
+                    line.setLength(0);
+                    for (int j = offsets.get(p); j < end; j++) {
+                        if (j > offsets.get(p)) line.append(',');
+                        line.append(links.get(j));
+                    }
+                    line.append('\n');
+                    out.append(line);
+                }
+            });
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: MinimalPaths <topology file> <output .csv or .mpx file> [max-links]");
+            return;
+        }
+        long start = System.nanoTime();
+        Topology topology = Topology.load(Path.of(args[0]));
+        int maxLinks = args.length > 2 ? Integer.parseInt(args[2]) : topology.maxLinks;
+        try (ParallelEvaluator evaluator = new ParallelEvaluator(Runtime.getRuntime().availableProcessors())) {
+            long paths = new MinimalPaths(topology, maxLinks).write(Path.of(args[1]), evaluator);
+            System.out.println("Enumerated " + paths + " minimal paths over " + topology.linkCount + " links in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+    }
+}
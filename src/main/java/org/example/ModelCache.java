@@ -0,0 +1,151 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Networks a TT agent has built recently, so requests for a known topology skip reading the
+// MP file and deriving beta, the path lead times, the PMF/CDF tables and the alias sampler.
+// The key is the MP file (path and content digest, see ResultCache.fileDigest) or the digest of
+// the paths sent inline with the request, plus the link vectors; when the file changes its old
+// models are dropped. Models are evicted least recently used first once their estimated size
+// exceeds the limit. Only used on the agent thread.
+public class ModelCache {
+    // everything derived from one network, shared read-only by the requests and worker threads
+    public static class Model {
+        public final MFN mfn;
+        public final double[][] pmf;
+        public final double[][] cdf;
+        public final FusedEstimator fused;
+        private final Map<String, EvaluationPlan> plans = new HashMap<>();
+        private final Map<String, StateEvaluator> engines = new HashMap<>();
+        final long bytes;
+
+        Model(MFN mfn) {
+            this.mfn = mfn;
+            this.pmf = mfn.calculatePMF();
+            this.cdf = mfn.CDF(pmf);
+            this.fused = new FusedEstimator(mfn, pmf);
+            mfn.getPathLeadTimes(); // computed now, the workers only read it
+
+            PathIndex paths = mfn.getPathIndex();
+            long tableEntries = 0;
+            for (double[] row : pmf) {
+                tableEntries += row.length;
+            }
+            // paths and lead times in ints, PMF, CDF and alias tables (probability + alias)
+            bytes = 4L * (paths.linkCount() + 2L * paths.size() + 1) + 8L * 2 * tableEntries + 12L * tableEntries;
+        }
+
+        // the plan for (d, T), compiled on first use
+        public synchronized EvaluationPlan plan(double d, double T) {
+            return plans.computeIfAbsent(d + "/" + T, key -> new EvaluationPlan(mfn, pmf, d, T));
+        }
+
+        // the engine (StateEvaluator.forEngine) for (d, T), built on first use
+        public synchronized StateEvaluator engine(String name, double d, double T) {
+            EvaluationPlan plan = plan(d, T);
+            return engines.computeIfAbsent(name + "/" + d + "/" + T, key -> StateEvaluator.forEngine(name, plan, mfn.m));
+        }
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Model> models = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, String> digestByFile = new HashMap<>(); // digest the cached models of a file were built from
+    private long totalBytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    public ModelCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public Model get(SimulationData data) {
+        if (data.hasInlinePaths()) {
+            // no file to watch: the digest of the paths themselves is the key
+            String key;
+            try {
+                key = "inline|" + ResultCache.pathsDigest(data) + "|" + vectors(data);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return build(data);
+            }
+            return lookup(key, data);
+        }
+
+        String file = Path.of(data.mpsFilePath).toAbsolutePath().normalize().toString();
+        String digest;
+        try {
+            digest = ResultCache.fileDigest(Path.of(file));
+        } catch (IOException e) {
+            e.printStackTrace(); // not cached, loadPaths reports the file as well
+            return build(data);
+        }
+
+        String previous = digestByFile.put(file, digest);
+        if (previous != null && !previous.equals(digest)) {
+            invalidate(file);
+            System.out.println("MP file " + file + " has changed, its cached models are dropped");
+        }
+
+        return lookup(file + "|" + digest + "|" + vectors(data), data);
+    }
+
+    private static String vectors(SimulationData data) {
+        return Arrays.toString(data.W) + Arrays.toString(data.C)
+                + Arrays.toString(data.L) + Arrays.toString(data.R) + Arrays.toString(data.rho);
+    }
+
+    private Model lookup(String key, SimulationData data) {
+        Model model = models.get(key);
+        if (model != null) {
+            hits++;
+            return model;
+        }
+        misses++;
+        model = build(data);
+        models.put(key, model);
+        totalBytes += model.bytes;
+        evict();
+        return model;
+    }
+
+    private static Model build(SimulationData data) {
+        MFN mfn = new MFN(data.m, data.W, data.C, data.L, data.R, data.rho);
+        if (data.hasInlinePaths()) {
+            mfn.setPathIndex(PathIndex.of(data.pathOffsets, data.pathLinks, data.pathOffsets.length - 1));
+        } else {
+            mfn.loadPaths(data.mpsFilePath);
+        }
+        return new Model(mfn);
+    }
+
+    private void invalidate(String file) {
+        Iterator<Map.Entry<String, Model>> it = models.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Model> entry = it.next();
+            if (entry.getKey().startsWith(file + "|")) {
+                totalBytes -= entry.getValue().bytes;
+                it.remove();
+            }
+        }
+    }
+
+    // the newest model always stays, even if it alone is over the limit
+    private void evict() {
+        Iterator<Model> it = models.values().iterator();
+        while (totalBytes > maxBytes && models.size() > 1) {
+            totalBytes -= it.next().bytes;
+            it.remove();
+        }
+    }
+
+    public String stats() {
+        return "model cache: " + models.size() + " models (~" + totalBytes / 1_000_000 + " MB), "
+                + hits + " hits, " + misses + " misses";
+    }
+}
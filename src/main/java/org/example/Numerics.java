@@ -0,0 +1,141 @@
+package org.example;
+
+// Numerical kernels behind MFN: the link PMF of formula (1) for large W, the standard
+// normal CDF and its inverse used for the sample size of Fishman (12b).
+public final class Numerics {
+    private static final double SQRT_2PI = Math.sqrt(2 * Math.PI);
+
+    private Numerics() {
+    }
+
+    // Binomial(w, q) probabilities for k = 0..w. The recurrence
+    // p(k+1) = p(k) * (w-k)/(k+1) * q/(1-q) runs outward from the mode with p(mode) = 1 and
+    // the result is normalized at the end, so there are no factorials and no overflow;
+    // terms far in the tails underflow to 0 where they are below double precision anyway.
+    public static double[] binomialPMF(int w, double q) {
+        double[] p = new double[w + 1];
+        if (q <= 0) {
+            p[0] = 1.0;
+            return p;
+        }
+        if (q >= 1) {
+            p[w] = 1.0;
+            return p;
+        }
+        int mode = (int) Math.min(w, Math.floor((w + 1) * q));
+        double odds = q / (1.0 - q);
+
+        p[mode] = 1.0;
+        double sum = 1.0;
+        for (int k = mode; k < w; k++) {
+            p[k + 1] = p[k] * ((double) (w - k) / (k + 1)) * odds;
+            if (p[k + 1] == 0) break;
+            sum += p[k + 1];
+        }
+        for (int k = mode; k > 0; k--) {
+            p[k - 1] = p[k] * ((double) k / (w - k + 1)) / odds;
+            if (p[k - 1] == 0) break;
+            sum += p[k - 1];
+        }
+        for (int k = 0; k <= w; k++) {
+            p[k] /= sum;
+        }
+        return p;
+    }
+
+    // formula (1): P(k) = (1/beta) * C(w,k) (r beta)^k (1 - r beta)^(w-k) for k >= 1,
+    // P(0) = 1 - (1/beta) * (1 - (1 - r beta)^w)
+    public static double[] linkPMF(int w, double r, double beta) {
+        double[] pmf = binomialPMF(w, r * beta);
+        double zeroBinomial = pmf[0];
+        for (int k = 1; k <= w; k++) {
+            pmf[k] /= beta;
+        }
+        pmf[0] = 1.0 - (1.0 - zeroBinomial) / beta;
+        return pmf;
+    }
+
+    // C(n, k) by the multiplicative formula, exact while the result fits in a double's mantissa
+    public static double binomialCoefficient(int n, int k) {
+        if (k < 0 || k > n) return 0;
+        k = Math.min(k, n - k);
+        double result = 1;
+        for (int i = 1; i <= k; i++) {
+            result = result * (n - k + i) / i;
+        }
+        return result;
+    }
+
+    // R(z) = Q(z) / phi(z) at z = 0, 2, ..., 16, Q = 1 - Phi
+    private static final double[] MILLS_RATIO = {
+            1.25331413731550025, 0.421369229288054473, 0.236652382913560671,
+            0.162377660896867462, 0.123131963257932296, 0.0990285964717319214,
+            0.0827662865013691773, 0.0710695805388521071, 0.0622586659950261958
+    };
+    private static final double LOG_SQRT_2PI = 0.91893853320467274178;
+
+    // Standard normal CDF with about 15 correct digits also deep in the tails.
+    // Up to |x| = 16: Marsaglia (2004), a Taylor series of the Mills ratio around the nearest
+    // even z; above: continued fraction of the Mills ratio, which converges fast there.
+    public static double normalCDF(double x) {
+        double xAbs = Math.abs(x);
+        double upper; // Q(|x|)
+        if (xAbs > 38) {
+            upper = 0;
+        } else if (xAbs <= 16) {
+            int j = (int) ((xAbs + 1) / 2);
+            double a = MILLS_RATIO[j];
+            double z = 2 * j;
+            double h = xAbs - z;
+            double b = z * a - 1;
+            double pwr = 1;
+            double sum = a + h * b;
+            for (int i = 2; i < 100; i += 2) {
+                a = (a + z * b) / i;
+                b = (b + z * a) / (i + 1);
+                pwr *= h * h;
+                double previous = sum;
+                sum += pwr * (a + h * b);
+                if (sum == previous) break;
+            }
+            upper = sum * Math.exp(-0.5 * xAbs * xAbs - LOG_SQRT_2PI);
+        } else {
+            double frac = xAbs;
+            for (int k = 30; k >= 1; k--) {
+                frac = xAbs + k / frac;
+            }
+            upper = Math.exp(-0.5 * xAbs * xAbs - LOG_SQRT_2PI) / frac;
+        }
+        return x < 0 ? upper : 1 - upper;
+    }
+
+    // Inverse standard normal CDF: Acklam's rational approximation (relative error 1.2e-9)
+    // followed by one Halley step on normalCDF, which brings it to double precision.
+    public static double normalICDF(double u) {
+        if (u <= 0 || u >= 1) throw new IllegalArgumentException("u must be in (0, 1)");
+        if (u > 0.5) {
+            return -normalICDF(1.0 - u); // 1 - u is exact for u in [0.5, 1)
+        }
+
+        double x;
+        if (u < 0.02425) {
+            double q = Math.sqrt(-2 * Math.log(u));
+            x = (((((-7.784894002430293e-03 * q - 3.223964580411365e-01) * q - 2.400758277161838e+00) * q
+                    - 2.549732539343734e+00) * q + 4.374664141464968e+00) * q + 2.938163982698783e+00)
+                    / ((((7.784695709041462e-03 * q + 3.224671290700398e-01) * q + 2.445134137142996e+00) * q
+                    + 3.754408661907416e+00) * q + 1);
+        } else {
+            double q = u - 0.5;
+            double r = q * q;
+            x = (((((-3.969683028665376e+01 * r + 2.209460984245205e+02) * r - 2.759285104469687e+02) * r
+                    + 1.383577518672690e+02) * r - 3.066479806614716e+01) * r + 2.506628277459239e+00) * q
+                    / (((((-5.447609879822406e+01 * r + 1.615858368580409e+02) * r - 1.556989798598866e+02) * r
+                    + 6.680131188771972e+01) * r - 1.328068155288572e+01) * r + 1);
+        }
+
+        // Halley refinement
+        double e = normalCDF(x) - u;
+        double t = e * SQRT_2PI * Math.exp(x * x / 2);
+        return x - t / (1 + x * t / 2);
+    }
+}
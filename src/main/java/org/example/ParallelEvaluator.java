@@ -0,0 +1,149 @@
+package org.example;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+// Counts successful SSVs on a fork-join pool. The SSV range is split between the workers,
+// every leaf counts into its own local counter and the counts are summed while joining,
+// so there is no shared counter and the result is the same as MFN.countSuccesses.
+public class ParallelEvaluator implements AutoCloseable {
+    public static final int MIN_ROWS_PER_TASK = 256;
+
+    private final ForkJoinPool pool;
+    private final int workers;
+
+    public ParallelEvaluator(int workers) {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("Number of workers must be positive");
+        }
+        this.workers = workers;
+        this.pool = new ForkJoinPool(workers);
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    // counts successes in SSVs [from, to) of some sample set
+    public interface RangeCounter {
+        long count(int from, int to);
+    }
+
+    public long countSuccesses(int size, RangeCounter counter) {
+        return countSuccesses(size, counter, MIN_ROWS_PER_TASK);
+    }
+
+    // minPerTask = 1 when every index is already a large unit of work (e.g. a block of fused samples)
+    public long countSuccesses(int size, RangeCounter counter, int minPerTask) {
+        return pool.invoke(new CountTask(counter, 0, size, grain(size, minPerTask)));
+    }
+
+    public long countSuccesses(MFN mfn, double[][] ssvs, double d, double T) {
+        return countSuccesses(ssvs.length, (from, to) -> mfn.countSuccesses(ssvs, from, to, d, T));
+    }
+
+    public long countSuccesses(MFN mfn, SSVStore store, double d, double T) {
+        return countSuccesses(store.size(), (from, to) -> mfn.countSuccesses(store, from, to, d, T));
+    }
+
+    // runs the count on the pool and returns immediately, so the caller (agent thread) is not blocked
+    public CompletableFuture<Long> countSuccessesAsync(int size, RangeCounter counter) {
+        return countSuccessesAsync(size, counter, MIN_ROWS_PER_TASK);
+    }
+
+    public CompletableFuture<Long> countSuccessesAsync(int size, RangeCounter counter, int minPerTask) {
+        return CompletableFuture.supplyAsync(() -> countSuccesses(size, counter, minPerTask), pool);
+    }
+
+    // does the work for indices [from, to) of some work set
+    public interface RangeAction {
+        void run(int from, int to);
+    }
+
+    // runs the action on the ranges of the workers and returns when all are done; for work
+    // that writes its results to the caller's own slots instead of counting
+    public void forEachRange(int size, RangeAction action, int minPerTask) {
+        countSuccesses(size, (from, to) -> {
+            action.run(from, to);
+            return 0;
+        }, minPerTask);
+    }
+
+    // builds a partial result for indices [from, to) of some work set
+    public interface RangeFunction<R> {
+        R apply(int from, int to);
+    }
+
+    // like countSuccesses, for results that are not a single count (e.g. histograms):
+    // every leaf builds its own partial result and the partials are merged while joining
+    public <R> CompletableFuture<R> reduceAsync(int size, RangeFunction<R> leaf, BinaryOperator<R> merge, int minPerTask) {
+        return CompletableFuture.supplyAsync(
+                () -> pool.invoke(new ReduceTask<>(leaf, merge, 0, size, grain(size, minPerTask))), pool);
+    }
+
+    private int grain(int n, int minPerTask) {
+        // about 4 tasks per worker to even out slow ranges
+        return Math.max(minPerTask, n / (workers * 4));
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private static class CountTask extends RecursiveTask<Long> {
+        private final RangeCounter counter;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        CountTask(RangeCounter counter, int from, int to, int grain) {
+            this.counter = counter;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= grain) {
+                return counter.count(from, to);
+            }
+            int mid = (from + to) >>> 1;
+            CountTask left = new CountTask(counter, from, mid, grain);
+            left.fork();
+            long right = new CountTask(counter, mid, to, grain).compute();
+            return left.join() + right;
+        }
+    }
+
+    private static class ReduceTask<R> extends RecursiveTask<R> {
+        private final RangeFunction<R> leaf;
+        private final BinaryOperator<R> merge;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        ReduceTask(RangeFunction<R> leaf, BinaryOperator<R> merge, int from, int to, int grain) {
+            this.leaf = leaf;
+            this.merge = merge;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected R compute() {
+            if (to - from <= grain) {
+                return leaf.apply(from, to);
+            }
+            int mid = (from + to) >>> 1;
+            ReduceTask<R> left = new ReduceTask<>(leaf, merge, from, mid, grain);
+            left.fork();
+            R right = new ReduceTask<>(leaf, merge, mid, to, grain).compute();
+            return merge.apply(left.join(), right);
+        }
+    }
+}
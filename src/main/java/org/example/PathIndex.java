@@ -0,0 +1,258 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+// All minimal paths in two flat int arrays: the links of path p are
+// links[offsets[p] .. offsets[p + 1]). No object per path.
+//
+// Binary MP file (.mpx), little-endian:
+//   int magic 'MPIX', int version, int pathCount, int linkCount,
+//   int offsets[pathCount + 1], int links[linkCount]
+// The file is memory-mapped, so loading costs one header read no matter how many paths it has.
+// A single mapping is limited to 2 GB, i.e. about 500 million link indices.
+public class PathIndex {
+    public static final int MAGIC = 0x5849504D; // "MPIX" read as a little-endian int
+    public static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    private final IntBuffer offsets;
+    private final IntBuffer links;
+    private final int pathCount;
+
+    private PathIndex(IntBuffer offsets, IntBuffer links, int pathCount) {
+        this.offsets = offsets;
+        this.links = links;
+        this.pathCount = pathCount;
+    }
+
+    public static PathIndex of(int[] offsets, int[] links, int pathCount) {
+        return new PathIndex(IntBuffer.wrap(offsets), IntBuffer.wrap(links), pathCount);
+    }
+
+    public static PathIndex fromList(List<int[]> paths) {
+        int total = 0;
+        for (int[] path : paths) {
+            total += path.length;
+        }
+        int[] offsets = new int[paths.size() + 1];
+        int[] links = new int[total];
+        int pos = 0;
+        for (int p = 0; p < paths.size(); p++) {
+            offsets[p] = pos;
+            int[] path = paths.get(p);
+            System.arraycopy(path, 0, links, pos, path.length);
+            pos += path.length;
+        }
+        offsets[paths.size()] = pos;
+        return of(offsets, links, paths.size());
+    }
+
+    public int size() {
+        return pathCount;
+    }
+
+    public int start(int p) {
+        return offsets.get(p);
+    }
+
+    public int end(int p) {
+        return offsets.get(p + 1);
+    }
+
+    public int length(int p) {
+        return end(p) - start(p);
+    }
+
+    // link at flat position j, start(p) <= j < end(p)
+    public int link(int j) {
+        return links.get(j);
+    }
+
+    // total number of link indices over all paths
+    public int linkCount() {
+        return offsets.get(pathCount);
+    }
+
+    public int[] toArray(int p) {
+        int[] path = new int[length(p)];
+        for (int j = 0; j < path.length; j++) {
+            path[j] = links.get(start(p) + j);
+        }
+        return path;
+    }
+
+    // binary file if it starts with the magic number, the legacy CSV format otherwise
+    public static PathIndex load(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] head = in.readNBytes(4);
+            if (head.length == 4 && ByteBuffer.wrap(head).order(ByteOrder.LITTLE_ENDIAN).getInt() == MAGIC) {
+                return map(file);
+            }
+        }
+        return parseCSV(file);
+    }
+
+    public static PathIndex map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a binary MP file: " + file);
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException("Unsupported MP file version " + buffer.getInt(4) + " in " + file);
+            }
+            int pathCount = buffer.getInt(8);
+            int linkCount = buffer.getInt(12);
+            long expected = HEADER_BYTES + 4L * (pathCount + 1) + 4L * linkCount;
+            if (channel.size() < expected) {
+                throw new IOException("Truncated MP file: " + file);
+            }
+            IntBuffer ints = buffer.position(HEADER_BYTES).slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            IntBuffer offsets = ints.slice(0, pathCount + 1);
+            IntBuffer links = ints.slice(pathCount + 1, linkCount);
+            return new PathIndex(offsets, links, pathCount);
+        }
+    }
+
+    // Legacy CSV (one path per line, link indices separated by ',', ';' or spaces), parsed
+    // straight from the bytes into the flat arrays. Tokens like "3.0" are accepted, as
+    // Double.parseDouble in MFN.getMPs accepted them.
+    public static PathIndex parseCSV(Path file) throws IOException {
+        IntList offsets = new IntList();
+        IntList links = new IntList();
+        byte[] buf = new byte[1 << 16];
+
+        try (InputStream in = Files.newInputStream(file)) {
+            int value = 0;
+            boolean inNumber = false;
+            boolean inFraction = false;
+            boolean lineHasLinks = false;
+            int lineNumber = 1;
+            int read;
+            while ((read = in.read(buf)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    byte c = buf[i];
+                    if (c >= '0' && c <= '9') {
+                        if (!inFraction) {
+                            value = value * 10 + (c - '0');
+                        }
+                        inNumber = true;
+                    } else if (c == '.' && inNumber && !inFraction) {
+                        inFraction = true;
+                    } else if (c == ',' || c == ';' || c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                        if (inNumber) {
+                            if (!lineHasLinks) {
+                                offsets.add(links.size());
+                                lineHasLinks = true;
+                            }
+                            links.add(value);
+                            value = 0;
+                            inNumber = false;
+                            inFraction = false;
+                        }
+                        if (c == '\n') {
+                            lineHasLinks = false;
+                            lineNumber++;
+                        }
+                    } else {
+                        throw new NumberFormatException("Unexpected character '" + (char) c
+                                + "' in MP file " + file + " at line " + lineNumber);
+                    }
+                }
+            }
+            if (inNumber) {
+                if (!lineHasLinks) {
+                    offsets.add(links.size());
+                }
+                links.add(value);
+            }
+        }
+        int pathCount = offsets.size();
+        offsets.add(links.size());
+        return of(offsets.toArray(), links.toArray(), pathCount);
+    }
+
+    public void writeBinary(Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(pathCount).putInt(linkCount());
+            for (int p = 0; p <= pathCount; p++) {
+                buffer = flushIfFull(out, buffer);
+                buffer.putInt(offsets.get(p));
+            }
+            int total = linkCount();
+            for (int j = 0; j < total; j++) {
+                buffer = flushIfFull(out, buffer);
+                buffer.putInt(links.get(j));
+            }
+            out.write(buffer.array(), 0, buffer.position());
+        }
+    }
+
+    private static ByteBuffer flushIfFull(OutputStream out, ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < 4) {
+            out.write(buffer.array(), 0, buffer.position());
+            buffer.clear();
+        }
+        return buffer;
+    }
+
+    // converts a CSV MP file to the binary format: java org.example.PathIndex in.csv out.mpx
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: PathIndex <input MP file> <output .mpx file>");
+            return;
+        }
+        long start = System.nanoTime();
+        PathIndex index = load(Path.of(args[0]));
+        index.writeBinary(Path.of(args[1]));
+        System.out.println("Converted " + index.size() + " minimal paths in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    // growable int array, so parsing (and MinimalPaths) does not box every index
+    static class IntList {
+        private int[] data = new int[1024];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int get(int i) {
+            return data[i];
+        }
+
+        void addAll(IntList other) {
+            if (size + other.size > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, size + other.size));
+            }
+            System.arraycopy(other.data, 0, data, size, other.size);
+            size += other.size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
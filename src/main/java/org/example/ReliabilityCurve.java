@@ -0,0 +1,102 @@
+package org.example;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+// Empirical distribution of the shortest transmission time (formula (3), minimum over the
+// minimal paths) for several demands d. Transmission times are integers, so for demand k the
+// SSVs are counted per time in counts[k][t - firstTime[k]]; the reliability for any deadline T
+// is then the share of SSVs with time <= T, without looking at the samples again.
+public class ReliabilityCurve implements Serializable {
+    private final double[] demands;
+    private final int[] firstTime;  // time of the first bin of demand k
+    private final long[][] counts;
+    private final long[] damaged;   // SSVs in which every path is damaged, infinite time
+    private long samples = 0;
+
+    public ReliabilityCurve(double[] demands, int[] firstTime, int[] binCount) {
+        this.demands = demands;
+        this.firstTime = firstTime;
+        this.counts = new long[demands.length][];
+        for (int k = 0; k < demands.length; k++) {
+            counts[k] = new long[binCount[k]];
+        }
+        this.damaged = new long[demands.length];
+    }
+
+    // one SSV whose shortest transmission time for demand k is `time`, for every k
+    void add(double[] times) {
+        for (int k = 0; k < times.length; k++) {
+            if (times[k] == Double.POSITIVE_INFINITY) {
+                damaged[k]++;
+            } else {
+                counts[k][(int) (times[k] - firstTime[k])]++;
+            }
+        }
+        samples++;
+    }
+
+    // adds the counts of a curve with the same demands, for partial results of the workers
+    public ReliabilityCurve merge(ReliabilityCurve other) {
+        for (int k = 0; k < demands.length; k++) {
+            for (int t = 0; t < counts[k].length; t++) {
+                counts[k][t] += other.counts[k][t];
+            }
+            damaged[k] += other.damaged[k];
+        }
+        samples += other.samples;
+        return this;
+    }
+
+    public int getDemandCount() {
+        return demands.length;
+    }
+
+    public double getDemand(int k) {
+        return demands[k];
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    // share of SSVs in which demand k can be sent within T, the same as a TT run with (d, T)
+    public double reliability(int k, double T) {
+        long successCount = 0;
+        for (int t = 0; t < counts[k].length && firstTime[k] + t <= T; t++) {
+            successCount += counts[k][t];
+        }
+        if (T == Double.POSITIVE_INFINITY) {
+            successCount += damaged[k]; // formula (3) accepts inf <= inf
+        }
+        return (double) successCount / samples;
+    }
+
+    // the times at which the reliability of demand k increases
+    public List<Integer> stepTimes(int k) {
+        List<Integer> times = new ArrayList<>();
+        for (int t = 0; t < counts[k].length; t++) {
+            if (counts[k][t] > 0) {
+                times.add(firstTime[k] + t);
+            }
+        }
+        return times;
+    }
+
+    // the CDF of demand k as "T: reliability" lines, at the given deadlines or else at every step
+    public String format(int k, double[] deadlines) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("d=").append(demands[k]).append(':');
+        if (deadlines != null) {
+            for (double T : deadlines) {
+                sb.append(System.lineSeparator()).append("  T=").append(T).append(": ").append(reliability(k, T));
+            }
+        } else {
+            for (int t : stepTimes(k)) {
+                sb.append(System.lineSeparator()).append("  T>=").append(t).append(": ").append(reliability(k, t));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,270 @@
+package org.example;
+
+import jade.lang.acl.ACLMessage;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Answers of finished runs, so a rerun of the same scenario is answered without drawing a sample.
+// The key is a SHA-256 over everything the answer depends on: the SimulationData parameters,
+// the digest of the MP file's content, the seed, d and T. Two tiers: an LRU map of recent
+// entries in memory and one file per entry in a directory that survives restarts; the
+// directory is kept under a size limit by deleting the least recently used files.
+public class ResultCache {
+    private static final int KEY_VERSION = 1; // change when the key layout or the meaning of results changes
+
+    // the answer as it was sent: ontology, text or serialized content and user-defined parameters
+    public static class Entry implements Serializable {
+        public final String ontology;
+        public final String content;
+        public final byte[] bytes;
+        public final LinkedHashMap<String, String> params = new LinkedHashMap<>();
+
+        public Entry(ACLMessage reply) {
+            this.ontology = reply.getOntology();
+            this.bytes = reply.hasByteSequenceContent() ? reply.getByteSequenceContent() : null;
+            this.content = bytes == null ? reply.getContent() : null;
+            for (String name : reply.getAllUserDefinedParameters().stringPropertyNames()) {
+                if (!RunMetrics.SENT_AT.equals(name)) { // a fresh one is set when the entry is sent
+                    params.put(name, reply.getUserDefinedParameter(name));
+                }
+            }
+        }
+
+        // copies the answer into a new message, e.g. msg.createReply()
+        public ACLMessage fill(ACLMessage msg) {
+            msg.setPerformative(ACLMessage.INFORM);
+            msg.setOntology(ontology);
+            if (bytes != null) {
+                msg.setByteSequenceContent(bytes);
+            } else {
+                msg.setContent(content);
+            }
+            params.forEach(msg::addUserDefinedParameter);
+            return msg;
+        }
+    }
+
+    private final Path dir;
+    private final long maxDiskBytes;
+    private final LinkedHashMap<String, Entry> memory;
+    private long memoryHits = 0;
+    private long diskHits = 0;
+    private long misses = 0;
+
+    public ResultCache(Path dir, int maxMemoryEntries, long maxDiskBytes) throws IOException {
+        this.dir = dir;
+        this.maxDiskBytes = maxDiskBytes;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxMemoryEntries;
+            }
+        };
+        Files.createDirectories(dir);
+    }
+
+    public synchronized Entry get(String key) {
+        Entry entry = memory.get(key);
+        if (entry != null) {
+            memoryHits++;
+            return entry;
+        }
+        Path file = dir.resolve(key + ".result");
+        if (Files.exists(file)) {
+            try (ObjectInputStream in = new ObjectInputStream(Files.newInputStream(file))) {
+                entry = (Entry) in.readObject();
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                memory.put(key, entry);
+                diskHits++;
+                return entry;
+            } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                System.err.println("Dropping unreadable cache entry " + file + ": " + e);
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    public synchronized void put(String key, Entry entry) {
+        memory.put(key, entry);
+        Path file = dir.resolve(key + ".result");
+        Path tmp = dir.resolve(key + ".tmp");
+        try {
+            try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(tmp))) {
+                out.writeObject(entry);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            evictDisk();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // oldest files (by last use) go first until the directory fits in maxDiskBytes
+    private void evictDisk() throws IOException {
+        List<Path> files = new ArrayList<>();
+        Map<Path, BasicFileAttributes> attributes = new HashMap<>();
+        try (Stream<Path> list = Files.list(dir)) {
+            list.filter(p -> p.toString().endsWith(".result")).forEach(files::add);
+        }
+        long total = 0;
+        for (Path file : files) {
+            BasicFileAttributes a = Files.readAttributes(file, BasicFileAttributes.class);
+            attributes.put(file, a);
+            total += a.size();
+        }
+        if (total <= maxDiskBytes) return;
+        files.sort((a, b) -> attributes.get(a).lastModifiedTime().compareTo(attributes.get(b).lastModifiedTime()));
+        for (Path file : files) {
+            if (total <= maxDiskBytes) break;
+            total -= attributes.get(file).size();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    public synchronized long getMemoryHits() {
+        return memoryHits;
+    }
+
+    public synchronized long getDiskHits() {
+        return diskHits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized String stats() {
+        return "result cache: " + memoryHits + " memory hits, " + diskHits + " disk hits, " + misses + " misses";
+    }
+
+    // Key of a request with the given ontology answered by an agent with (d, T). What does not change
+    // the answer is left out: deadlines of curves (printing only) and the engine (all give the same counts).
+    public static String key(String ontology, SimulationData data, double d, double T) throws IOException {
+        MessageDigest sha = sha256();
+        try (DataOutputStream out = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), sha))) {
+            out.writeInt(KEY_VERSION);
+            out.writeUTF(ontology);
+            out.writeDouble(d);
+            out.writeDouble(T);
+            out.writeInt(data.m);
+            writeInts(out, data.W);
+            writeDoubles(out, data.C);
+            writeInts(out, data.L);
+            writeDoubles(out, data.R);
+            writeDoubles(out, data.rho);
+            out.writeUTF(pathsDigest(data));
+            out.writeInt(data.N);
+            out.writeLong(data.seed);
+            out.writeBoolean(data.adaptive);
+            // epsilon and delta only change adaptive and weighted answers, the tilt only importance sampling
+            boolean weighted = data.sampling != null;
+            out.writeDouble(data.adaptive || weighted ? data.epsilon : 0);
+            out.writeDouble(data.adaptive || weighted ? data.delta : 0);
+            out.writeUTF(weighted ? data.sampling : "");
+            out.writeDouble(weighted ? data.tilt : 0);
+            out.writeInt(data.firstBlock);
+            out.writeInt(data.blockEnd);
+            writeDoubles(out, data.demands);
+            if (SimulationData.SENSITIVITY_REQUEST.equals(ontology)) {
+                out.writeDouble(data.sensitivityStep);
+            }
+            if (data.incremental) {
+                out.writeBoolean(true); // other states than the plain fused draw of the seed
+            }
+        }
+        return hex(sha.digest());
+    }
+
+    private static final Map<Path, String> digests = new HashMap<>();
+    private static final Map<Path, String> digestStamps = new HashMap<>();
+
+    // digest of the request's MPs: the inline paths if it carries them, otherwise its MP file
+    public static String pathsDigest(SimulationData data) throws IOException {
+        if (!data.hasInlinePaths()) {
+            return fileDigest(Path.of(data.mpsFilePath));
+        }
+        MessageDigest sha = sha256();
+        try (DataOutputStream out = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), sha))) {
+            writeInts(out, data.pathOffsets);
+            writeInts(out, data.pathLinks);
+        }
+        return "inline-" + hex(sha.digest());
+    }
+
+    // SHA-256 of the file's content, remembered while its size and modification time stay the same
+    public static synchronized String fileDigest(Path file) throws IOException {
+        Path path = file.toAbsolutePath().normalize();
+        BasicFileAttributes a = Files.readAttributes(path, BasicFileAttributes.class);
+        String stamp = a.size() + "@" + a.lastModifiedTime().toMillis();
+        if (stamp.equals(digestStamps.get(path))) {
+            return digests.get(path);
+        }
+        MessageDigest sha = sha256();
+        byte[] buf = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(path)) {
+            int read;
+            while ((read = in.read(buf)) > 0) {
+                sha.update(buf, 0, read);
+            }
+        }
+        String digest = hex(sha.digest());
+        digests.put(path, digest);
+        digestStamps.put(path, stamp);
+        return digest;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values != null ? values.length : -1);
+        if (values != null) {
+            for (int v : values) out.writeInt(v);
+        }
+    }
+
+    private static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+        out.writeInt(values != null ? values.length : -1);
+        if (values != null) {
+            for (double v : values) out.writeDouble(v);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every Java platform has SHA-256
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,197 @@
+package org.example;
+
+import jade.lang.acl.ACLMessage;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Where the time of one run goes on one agent: time, samples, message bytes and heap allocated
+// per phase. Every phase is also a JFR event (SimulationEvents.PhaseEvent) and is added to the
+// agent's JMX totals (AgentMetrics); finish() emits a RunEvent and returns the summary that
+// the agents print at the end of a run. Phases may run on worker threads, the totals are atomic.
+public class RunMetrics {
+    public enum Phase {
+        MODEL("model"),                   // MP file, PMF/CDF and alias tables
+        SAMPLING("sampling"),             // SSVs drawn by the generator
+        SERIALIZATION("serialization"),   // SimulationDataCodec or Java serialization, bytes = content size
+        MESSAGE("message hop"),           // from send on one agent to receive on the other
+        EXPORT("export"),                 // SSVExporter writing the received SSVs
+        EVALUATION("evaluation"),         // counting on the workers (in fused mode drawing as well)
+        QUEUE_WAIT("queue wait"),         // results waiting for the agent thread, chunks waiting for the window
+        REMOTE("waiting for TT");         // generator: request sent until the answer is back
+
+        public final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+    }
+
+    // user-defined message parameter with the sender's System.currentTimeMillis(), for the message hop
+    public static final String SENT_AT = "sent-at";
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final AgentMetrics agent;
+    private final String id;
+    private final String kind;
+    private final long started = System.nanoTime();
+    private final int phases = Phase.values().length;
+    private final AtomicLongArray nanos = new AtomicLongArray(phases);
+    private final AtomicLongArray samples = new AtomicLongArray(phases);
+    private final AtomicLongArray bytes = new AtomicLongArray(phases);
+    private final AtomicLongArray allocated = new AtomicLongArray(phases);
+    private final AtomicLong workerAllocated = new AtomicLong();
+    private long runSamples = 0;
+    private boolean finished = false;
+
+    RunMetrics(AgentMetrics agent, String id, String kind) {
+        this.agent = agent;
+        this.id = id;
+        this.kind = kind;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setSamples(long samples) {
+        runSamples = samples;
+    }
+
+    // measures a phase on the current thread until stop()
+    public class Timer {
+        private final Phase phase;
+        private final long start = System.nanoTime();
+        private final long startAllocated = threadAllocated();
+
+        private Timer(Phase phase) {
+            this.phase = phase;
+        }
+
+        public void stop() {
+            stop(0, 0);
+        }
+
+        public void stop(long phaseSamples, long phaseBytes) {
+            record(phase, System.nanoTime() - start, phaseSamples, phaseBytes, threadAllocated() - startAllocated);
+        }
+    }
+
+    public Timer start(Phase phase) {
+        return new Timer(phase);
+    }
+
+    public void record(Phase phase, long phaseNanos, long phaseSamples, long phaseBytes, long phaseAllocated) {
+        int p = phase.ordinal();
+        nanos.addAndGet(p, phaseNanos);
+        samples.addAndGet(p, phaseSamples);
+        bytes.addAndGet(p, phaseBytes);
+        allocated.addAndGet(p, phaseAllocated);
+        agent.record(phase, phaseNanos, phaseSamples, phaseBytes, phaseAllocated);
+
+        SimulationEvents.PhaseEvent event = new SimulationEvents.PhaseEvent();
+        if (event.isEnabled()) {
+            event.agent = agent.getName();
+            event.run = id;
+            event.phase = phase.label;
+            event.time = phaseNanos;
+            event.samples = phaseSamples;
+            event.samplesPerSecond = phaseSamples / Math.max(1e-9, phaseNanos / 1e9);
+            event.bytes = phaseBytes;
+            event.allocated = phaseAllocated;
+            event.commit();
+        }
+    }
+
+    // Adds the heap the worker threads allocate in the counter; evaluationDone() records it
+    // with the evaluation, whose time is taken on the agent thread from submit to result.
+    public ParallelEvaluator.RangeCounter measure(ParallelEvaluator.RangeCounter counter) {
+        return (from, to) -> {
+            long before = threadAllocated();
+            long count = counter.count(from, to);
+            workerAllocated.addAndGet(threadAllocated() - before);
+            return count;
+        };
+    }
+
+    public void evaluationDone(long phaseNanos, long phaseSamples) {
+        record(Phase.EVALUATION, phaseNanos, phaseSamples, 0, workerAllocated.getAndSet(0));
+    }
+
+    // time of the message from its SENT_AT stamp (same host, or hosts with synchronized clocks)
+    public void received(ACLMessage msg) {
+        String sentAt = msg.getUserDefinedParameter(SENT_AT);
+        if (sentAt != null) {
+            long millis = System.currentTimeMillis() - Long.parseLong(sentAt);
+            record(Phase.MESSAGE, Math.max(0, millis) * 1_000_000, 0, contentSize(msg), 0);
+        }
+    }
+
+    public static void stamp(ACLMessage msg) {
+        msg.addUserDefinedParameter(SENT_AT, String.valueOf(System.currentTimeMillis()));
+    }
+
+    public static long contentSize(ACLMessage msg) {
+        if (msg.hasByteSequenceContent()) {
+            byte[] content = msg.getByteSequenceContent();
+            return content != null ? content.length : 0;
+        }
+        String content = msg.getContent();
+        return content != null ? content.length() : 0;
+    }
+
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+
+    // ends the run once (later calls are ignored) and returns its summary
+    public synchronized String finish(boolean succeeded) {
+        if (finished) {
+            return summary(succeeded);
+        }
+        finished = true;
+        long total = System.nanoTime() - started;
+        String summary = summary(succeeded);
+        agent.runFinished(succeeded, runSamples, total, summary);
+
+        SimulationEvents.RunEvent event = new SimulationEvents.RunEvent();
+        if (event.isEnabled()) {
+            event.agent = agent.getName();
+            event.run = id;
+            event.kind = kind;
+            event.samples = runSamples;
+            event.succeeded = succeeded;
+            event.time = total;
+            event.commit();
+        }
+        return summary;
+    }
+
+    public String summary(boolean succeeded) {
+        long total = System.nanoTime() - started;
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "Run %s (%s) %s in %.1f ms, %d samples%n", id, kind,
+                succeeded ? "finished" : "failed", total / 1e6, runSamples));
+        sb.append(String.format(Locale.ROOT, "  %-14s %10s %7s %12s %10s %12s%n",
+                "phase", "ms", "share", "samples/s", "MB", "alloc MB"));
+        for (Phase phase : Phase.values()) {
+            int p = phase.ordinal();
+            long phaseNanos = nanos.get(p);
+            if (phaseNanos == 0 && bytes.get(p) == 0) continue;
+            long phaseSamples = samples.get(p);
+            sb.append(String.format(Locale.ROOT, "  %-14s %10.1f %6.1f%% %12s %10.2f %12.2f%n", phase.label,
+                    phaseNanos / 1e6, 100.0 * phaseNanos / Math.max(1, total),
+                    phaseSamples > 0 ? String.format(Locale.ROOT, "%.0f", phaseSamples / Math.max(1e-9, phaseNanos / 1e9)) : "-",
+                    bytes.get(p) / 1e6, allocated.get(p) / 1e6));
+        }
+        return sb.toString().stripTrailing();
+    }
+
+    static long threadAllocated() {
+        return THREADS.getCurrentThreadAllocatedBytes();
+    }
+}
@@ -0,0 +1,32 @@
+package org.example;
+
+import java.io.Serializable;
+
+// One batch of SSVs sent from SSVGenerator to TT while the stream is running
+public class SSVChunk implements Serializable {
+    // ontologies used to tell the stream messages apart
+    public static final String STREAM_START = "ssv-stream-start";
+    public static final String STREAM_CHUNK = "ssv-stream-chunk";
+    public static final String STREAM_END = "ssv-stream-end";
+
+    public static final int DEFAULT_CHUNK_SIZE = 10000;
+    public static final int DEFAULT_WINDOW = 4; // chunks sent but not yet confirmed by TT
+
+    public int index;
+    public double[][] ssvs;  // capacities, or null when the chunk carries states
+    public SSVStore states;  // numbers of working components, or null when the chunk carries ssvs
+
+    public SSVChunk(int index, double[][] ssvs) {
+        this.index = index;
+        this.ssvs = ssvs;
+    }
+
+    public SSVChunk(int index, SSVStore states) {
+        this.index = index;
+        this.states = states;
+    }
+
+    public int size() {
+        return states != null ? states.size() : ssvs.length;
+    }
+}
@@ -0,0 +1,216 @@
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+// Writes received SSVs to a file on a background thread. Chunks go through a bounded queue;
+// when the writer falls behind, new chunks are dropped (and counted) instead of blocking
+// the evaluation. Every value written is a capacity k * C[i], as in the old SSVs.csv.
+//   CSV    - one SSV per line, values separated by ','
+//   BINARY - raw little-endian doubles, m per SSV, no header
+//   GZIP   - the BINARY layout, gzip-compressed
+public class SSVExporter implements AutoCloseable {
+    public enum Format {
+        CSV("SSVs.csv"), BINARY("SSVs.bin"), GZIP("SSVs.bin.gz");
+
+        public final String defaultFile;
+
+        Format(String defaultFile) {
+            this.defaultFile = defaultFile;
+        }
+    }
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+    private final Path file;
+    private final Format format;
+    private final int every; // export only every `every`-th SSV
+    private final BlockingQueue<Object> queue;
+    private final CountingOutputStream out;
+    private final Thread writer;
+    private final double[] C;
+
+    private volatile boolean closed = false;
+    private volatile long rowsWritten = 0;
+    private volatile long rowsDropped = 0;
+    private long rowsSeen = 0;  // position in the global SSV sequence, used by the writer only
+    private volatile long writeNanos = 0; // time the writer spent formatting and writing, idle time excluded
+    private volatile RunMetrics run;      // gets the export phase when the file is complete
+
+    public SSVExporter(Path file, Format format, int every, int queueCapacity, double[] C) throws IOException {
+        if (every <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Export stride and queue capacity must be positive");
+        }
+        this.file = file;
+        this.format = format;
+        this.every = every;
+        this.C = C;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        OutputStream stream = Files.newOutputStream(file);
+        this.out = new CountingOutputStream(stream);
+        this.writer = new Thread(this::run, "ssv-exporter-" + file.getFileName());
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // returns false if the chunk was dropped because the writer is behind
+    public boolean submit(SSVStore states) {
+        return offer(states, states.size());
+    }
+
+    public boolean submit(double[][] ssvs) {
+        return offer(ssvs, ssvs.length);
+    }
+
+    private boolean offer(Object chunk, int rows) {
+        if (closed || !queue.offer(chunk)) {
+            rowsDropped += rows;
+            return false;
+        }
+        return true;
+    }
+
+    // does not wait for the queue to drain, the writer finishes the file and reports on its own
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    public void recordTo(RunMetrics run) {
+        this.run = run;
+    }
+
+    public void awaitTermination() throws InterruptedException {
+        writer.join();
+    }
+
+    public long getBytesWritten() {
+        return out.count;
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    public long getRowsDropped() {
+        return rowsDropped;
+    }
+
+    // SSVs per second while the writer was busy
+    public double getThroughput() {
+        return rowsWritten / Math.max(1e-9, writeNanos / 1e9);
+    }
+
+    private void run() {
+        long startAllocated = RunMetrics.threadAllocated();
+        try (OutputStream target = format == Format.GZIP
+                ? new GZIPOutputStream(out, 1 << 16) {{ def.setLevel(Deflater.BEST_SPEED); }}
+                : new BufferedOutputStream(out, 1 << 16)) {
+            while (true) {
+                Object chunk = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (chunk == null) {
+                    if (closed && queue.isEmpty()) break;
+                    continue;
+                }
+                long start = System.nanoTime();
+                if (chunk instanceof SSVStore) {
+                    write(target, (SSVStore) chunk);
+                } else {
+                    write(target, (double[][]) chunk);
+                }
+                writeNanos += System.nanoTime() - start;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        double seconds = Math.max(1e-9, writeNanos / 1e9);
+        System.out.println("SSVs exported to " + file + ": " + rowsWritten + " rows, " + out.count + " bytes, "
+                + String.format("%.0f SSVs/s, %.1f MB/s", rowsWritten / seconds, out.count / 1e6 / seconds)
+                + (rowsDropped > 0 ? ", " + rowsDropped + " rows dropped (export queue full)" : ""));
+        if (run != null) {
+            run.record(RunMetrics.Phase.EXPORT, writeNanos, rowsWritten, out.count, RunMetrics.threadAllocated() - startAllocated);
+        }
+    }
+
+    private void write(OutputStream target, SSVStore states) throws IOException {
+        int m = states.getLinkCount();
+        double[] row = new double[m];
+        for (int n = 0; n < states.size(); n++) {
+            if (rowsSeen++ % every != 0) continue;
+            for (int i = 0; i < m; i++) {
+                row[i] = states.getCapacity(n, i, C);
+            }
+            writeRow(target, row);
+        }
+    }
+
+    private void write(OutputStream target, double[][] ssvs) throws IOException {
+        for (double[] row : ssvs) {
+            if (rowsSeen++ % every != 0) continue;
+            writeRow(target, row);
+        }
+    }
+
+    private final StringBuilder line = new StringBuilder();
+    private ByteBuffer bytes = ByteBuffer.allocate(0);
+
+    private void writeRow(OutputStream target, double[] row) throws IOException {
+        if (format == Format.CSV) {
+            line.setLength(0);
+            for (int i = 0; i < row.length; i++) {
+                line.append(row[i]);
+                if (i < row.length - 1) {
+                    line.append(',');
+                }
+            }
+            line.append(System.lineSeparator());
+            target.write(line.toString().getBytes(StandardCharsets.US_ASCII));
+        } else {
+            if (bytes.capacity() < row.length * 8) {
+                bytes = ByteBuffer.allocate(row.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            bytes.clear();
+            for (double v : row) {
+                bytes.putDouble(v);
+            }
+            target.write(bytes.array(), 0, bytes.position());
+        }
+        rowsWritten++;
+    }
+
+    // counts bytes that reach the file, i.e. after compression
+    private static class CountingOutputStream extends FilterOutputStream {
+        volatile long count = 0;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
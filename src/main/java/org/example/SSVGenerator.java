@@ -2,37 +2,210 @@ package org.example;
 
 import jade.core.AID;
 import jade.core.Agent;
+import jade.core.behaviours.Behaviour;
 import jade.core.behaviours.CyclicBehaviour;
 import jade.core.behaviours.OneShotBehaviour;
+import jade.core.behaviours.TickerBehaviour;
+import jade.core.behaviours.WakerBehaviour;
 import jade.domain.DFService;
 import jade.domain.FIPAAgentManagement.DFAgentDescription;
+import jade.domain.FIPAAgentManagement.Property;
 import jade.domain.FIPAAgentManagement.ServiceDescription;
 import jade.domain.FIPAException;
 import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+import jade.lang.acl.UnreadableException;
+import jade.util.leap.Iterator;
 
 import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
 
 public class SSVGenerator extends Agent {
     private SSVGeneratorGui gui;
     private int N;
     private double epsilon;
     private double delta;
+    private int chunkSize;
+    private int window;
+    private int runCounter = 0;
+    private SplittableRandom rng;
+    private boolean shipSamples; // mode=stream: send the SSVs to TT, otherwise TT draws them itself (fused)
+    private boolean coordinate;  // mode=coordinator: fused blocks are shared out among all TT agents
+    // mode=shared: the SSVs go into a memory-mapped file in shared-dir (default: the temp dir) that
+    // TT reads in place, for a TT on the same host; the file is deleted once the answer is in
+    private Path sharedDir;
+    private Path sharedFile;
+    private long shardTimeout;   // ms without an answer before a shard is sent to another TT
+    private long streamTimeout;  // ms a stream waits for a confirmation or the answer of TT before it gives up
+    private double shardSeconds; // evaluation time aimed at per shard once an agent's throughput is known
+    private boolean adaptive;    // adaptive=true: N is only an upper limit, TT stops once epsilon is reached
+    private String sampling;     // sampling=<strategy>: weighted fused estimate, see SamplingStrategy
+    private double tilt;
+    private double[] curveDemands;   // curve-d=42/50/60: reliability curves for these demands instead of one (d, T)
+    private double[] curveDeadlines; // curve-T=10:30 (step 1), 10:30:0.5 or 10/15.5/20: where the curves are printed
+    private double sensitivityStep;  // sensitivity=true: ranked link importance instead of one reliability, 0 = off
+    // incremental=true: every run uses the same seed and TT keeps the SSVs of the last one, a run after
+    // an edit in the GUI redraws only the links whose W, R or rho changed; the agent stays for more runs
+    private boolean incremental;
+    private long incrementalSeed;
+    // codec=java: requests in Java serialization instead of SimulationDataCodec (for TT agents of older builds),
+    // compress=true: deflate the binary requests, inline-mps=true: send the MPs with them instead of the file path
+    private boolean javaSerialization;
+    private boolean compress;
+    private boolean inlineMPs;
+    // cache=<dir>: answers of earlier runs with the same seed, model and query are reused
+    private ResultCache cache;
+    private String pendingCacheKey;                          // key of the run waiting for its answer
+    private final Map<AID, double[]> ttQueries = new HashMap<>(); // (d, T) each TT agent registered in the DF
+    // phase times of the runs, JMX bean org.example:type=Agent,name=<agent>
+    private AgentMetrics metrics;
+    private RunMetrics run;      // the current run
+    private long requestSentAt;  // nanoTime the request (or the end of the stream) went to TT
+    // network given as arguments with gui=false
+    private String headlessMPs;
+    private int[] headlessW;
+    private double[] headlessC;
+    private int[] headlessL;
+    private double[] headlessR;
+    private double[] headlessRho;
 
     @Override
     protected void setup() {
         Object[] args = getArguments();
-        if (args != null && args.length == 2) {
+        if (args != null && args.length >= 2) {
             try {
                 epsilon = Double.parseDouble(args[0].toString());
                 delta = Double.parseDouble(args[1].toString());
 
+                AgentArgs options = new AgentArgs(args, 2);
+                chunkSize = options.getInt("chunk", SSVChunk.DEFAULT_CHUNK_SIZE);
+                window = options.getInt("window", SSVChunk.DEFAULT_WINDOW);
+                rng = options.has("seed")
+                        ? new SplittableRandom(Long.parseLong(options.getString("seed", null)))
+                        : new SplittableRandom();
+                String mode = options.getString("mode", "fused");
+                if (!mode.equals("fused") && !mode.equals("stream") && !mode.equals("coordinator") && !mode.equals("shared")) {
+                    System.err.println("Unknown mode " + mode + ", expected fused, stream, coordinator or shared.");
+                    doDelete();
+                    return;
+                }
+                shipSamples = mode.equals("stream");
+                coordinate = mode.equals("coordinator");
+                if (mode.equals("shared")) {
+                    sharedDir = Path.of(options.getString("shared-dir", System.getProperty("java.io.tmpdir")));
+                }
+                shardTimeout = options.getInt("shard-timeout", 30000);
+                streamTimeout = options.getInt("stream-timeout", 30000);
+                shardSeconds = options.getDouble("shard-seconds", 1.0);
+                adaptive = options.getBoolean("adaptive", false);
+                if (adaptive && !mode.equals("fused")) {
+                    System.err.println("Adaptive sample size is only available in fused mode.");
+                    doDelete();
+                    return;
+                }
+                sampling = options.getString("sampling", null);
+                tilt = options.getDouble("tilt", 3.0);
+                String codec = options.getString("codec", "binary");
+                if (!codec.equals("binary") && !codec.equals("java")) {
+                    System.err.println("Unknown codec " + codec + ", expected binary or java.");
+                    doDelete();
+                    return;
+                }
+                javaSerialization = codec.equals("java");
+                compress = options.getBoolean("compress", false);
+                inlineMPs = options.getBoolean("inline-mps", false);
+                if (javaSerialization && (compress || inlineMPs)) {
+                    System.out.println("compress and inline-mps only apply to codec=binary.");
+                }
+                if (sampling != null && (!mode.equals("fused") || adaptive || !SamplingStrategy.NAMES.contains(sampling))) {
+                    System.err.println("Sampling strategy must be one of " + SamplingStrategy.NAMES
+                            + " and is only available in non-adaptive fused mode.");
+                    doDelete();
+                    return;
+                }
+
                 if (epsilon <= 0 || epsilon >= 1 || delta <= 0 || delta >= 1) {
                     System.err.println("Epsilon and Delta must be in range (0, 1).");
                     doDelete();
                     return;
                 }
-            } catch (NumberFormatException e) {
+                if (chunkSize <= 0 || window <= 0) {
+                    System.err.println("Chunk size and window must be positive.");
+                    doDelete();
+                    return;
+                }
+                if (options.has("curve-d")) {
+                    curveDemands = AgentArgs.parseDoubleArray(options.getString("curve-d", null), -1);
+                    curveDeadlines = options.has("curve-T") ? parseDeadlines(options.getString("curve-T", null)) : null;
+                    if (!mode.equals("fused") || adaptive || sampling != null || curveDemands.length == 0) {
+                        System.err.println("Reliability curves need at least one demand and plain fused mode.");
+                        doDelete();
+                        return;
+                    }
+                }
+                if (options.getBoolean("sensitivity", false)) {
+                    sensitivityStep = options.getDouble("sensitivity-step", SensitivityEstimator.DEFAULT_STEP);
+                    if (!mode.equals("fused") || adaptive || sampling != null || curveDemands != null
+                            || !(sensitivityStep > 0 && sensitivityStep < 1)) {
+                        System.err.println("Link importance needs plain fused mode and a sensitivity-step in range (0, 1).");
+                        doDelete();
+                        return;
+                    }
+                }
+                if (options.getBoolean("incremental", false)) {
+                    incremental = true;
+                    incrementalSeed = rng.nextLong();
+                    if (!mode.equals("fused") || adaptive || sampling != null || curveDemands != null || sensitivityStep > 0) {
+                        System.err.println("Incremental runs need plain fused mode.");
+                        doDelete();
+                        return;
+                    }
+                }
+                if (options.has("cache")) {
+                    if (!options.has("seed")) {
+                        System.out.println("The result cache is only used with a fixed seed=<n>.");
+                    } else {
+                        try {
+                            cache = new ResultCache(Path.of(options.getString("cache", null)),
+                                    options.getInt("cache-entries", 256), options.getInt("cache-mb", 64) * 1_000_000L);
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    }
+                }
+                if (shardTimeout <= 0 || shardSeconds <= 0 || streamTimeout <= 0) {
+                    System.err.println("Shard timeout, shard seconds and stream timeout must be positive.");
+                    doDelete();
+                    return;
+                }
+
+                // gui=false: the network comes from the arguments, e.g. mps=MPs.csv,W=4/3/2/3/2,
+                // vectors not given are the example network of the GUI
+                if (!options.getBoolean("gui", true)) {
+                    headlessMPs = options.getString("mps", null);
+                    if (headlessMPs == null) {
+                        System.err.println("gui=false needs the MP file as mps=<file>.");
+                        doDelete();
+                        return;
+                    }
+                    headlessW = AgentArgs.parseIntArray(options.getString("W", SSVGeneratorGui.DEFAULT_W), -1);
+                    int m = headlessW.length;
+                    headlessC = AgentArgs.parseDoubleArray(options.getString("C", SSVGeneratorGui.DEFAULT_C), m);
+                    headlessL = AgentArgs.parseIntArray(options.getString("L", SSVGeneratorGui.DEFAULT_L), m);
+                    headlessR = AgentArgs.parseDoubleArray(options.getString("R", SSVGeneratorGui.DEFAULT_R), m);
+                    headlessRho = AgentArgs.parseDoubleArray(options.getString("rho", SSVGeneratorGui.DEFAULT_RHO), m);
+                }
+            } catch (IllegalArgumentException e) {
                 System.err.println("arguments' format error");
                 doDelete();
                 return;
@@ -51,10 +224,25 @@ public class SSVGenerator extends Agent {
         System.out.println("Hallo! SSVGenerator-agent " + getAID().getName() + " is ready.");
         System.out.println("The minimum number of iterations is equal to " + N);
 
-        gui = new SSVGeneratorGui(this);
-        gui.setVisible(true);
-
+        metrics = new AgentMetrics(getLocalName());
+        metrics.register();
         addBehaviour(new ReceiveReliabilityBehaviour());
+
+        if (headlessMPs != null) {
+            // agents started together with this one may not be in the DF yet, wait up to 10 s for a TT
+            addBehaviour(new TickerBehaviour(this, 500) {
+                @Override
+                protected void onTick() {
+                    if (!findTTAgents().isEmpty() || getTickCount() >= 20) {
+                        stop();
+                        startSimulation(headlessMPs, headlessW.length, headlessW, headlessC, headlessL, headlessR, headlessRho);
+                    }
+                }
+            });
+        } else {
+            gui = new SSVGeneratorGui(this);
+            gui.setVisible(true);
+        }
     }
 
     @Override
@@ -62,73 +250,807 @@ public class SSVGenerator extends Agent {
         if (gui != null) {
             gui.dispose();
         }
+        deleteSharedFile();
+        if (cache != null) {
+            System.out.println("SSVGenerator " + cache.stats());
+        }
+        if (metrics != null) {
+            metrics.unregister();
+        }
         System.out.println("SSVGenerator-agent " + getAID().getName() + " terminating.");
     }
 
+    // name of the run in the metrics, checked in the order startSimulation picks the behaviour
+    private String runKind() {
+        if (shipSamples) return "stream";
+        if (sharedDir != null) return "shared";
+        if (coordinate) return "coordinator";
+        if (curveDemands != null) return "curve";
+        if (sensitivityStep > 0) return "sensitivity";
+        if (incremental) return "incremental";
+        if (adaptive) return "adaptive";
+        if (sampling != null) return "sampling";
+        return "fused";
+    }
+
     public void startSimulation(String mpsFilePath, int m, int[] W, double[] C, int[] L, double[] R, double[] rho) {
+        run = metrics.newRun(runKind());
+        run.setSamples(N);
+        if (shipSamples) {
+            addBehaviour(new StreamSSVsBehaviour(mpsFilePath, m, W, C, L, R, rho));
+            return;
+        }
+        if (sharedDir != null) {
+            addBehaviour(new SharedSSVsBehaviour(mpsFilePath, m, W, C, L, R, rho));
+            return;
+        }
+        if (coordinate) {
+            printParameters(W, C, L, R, rho);
+            SimulationData data = new SimulationData(m, W, C, L, R, rho, mpsFilePath, N, 0);
+            data.seed = rng.nextLong();
+            addBehaviour(new CoordinatorBehaviour(data));
+            return;
+        }
         addBehaviour(new OneShotBehaviour() {
             @Override
             public void action() {
-                System.out.println("It has been created the MFN with the following parameters:");
-                System.out.println("W=" + Arrays.toString(W));
-                System.out.println("C=" + Arrays.toString(C));
-                System.out.println("L=" + Arrays.toString(L));
-                System.out.println("R=" + Arrays.toString(R));
-                System.out.println("rho=" + Arrays.toString(rho));
-
-                MFN mfn = new MFN(m, W, C, L, R, rho);
-                mfn.getMPs(mpsFilePath);
-
-                double[][] pmf = mfn.calculatePMF();
-                double[][] cdf = mfn.CDF(pmf);
-                double[][] generatedSSVs = mfn.randomSSV(N, cdf);
-
-                System.out.println(N + " random SSVs have been generated!");
+                printParameters(W, C, L, R, rho);
 
                 AID ttAgent = findTTAgent();
                 if (ttAgent == null) {
                     System.out.println("TT not found");
+                    System.out.println(run.finish(false));
                     return;
                 }
 
                 System.out.println("Found the following transmission times computing agent:\n" + ttAgent.getName());
+                if (curveDemands != null) {
+                    System.out.println("TT will draw " + N + " random SSVs for the reliability curves of d=" + Arrays.toString(curveDemands));
+                } else if (sensitivityStep > 0) {
+                    System.out.println("TT will draw " + N + " random SSVs for the importance of every link");
+                } else if (incremental) {
+                    System.out.println("TT will update its " + N + " SSVs of the last run to the changed links");
+                } else if (adaptive) {
+                    System.out.println("TT will draw and evaluate at most " + N + " random SSVs in adaptive fused mode");
+                } else {
+                    System.out.println("TT will draw and evaluate " + N + " random SSVs in fused mode");
+                }
 
                 ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
                 msg.addReceiver(ttAgent);
+                msg.setOntology(curveDemands != null ? SimulationData.CURVE_REQUEST
+                        : sensitivityStep > 0 ? SimulationData.SENSITIVITY_REQUEST : SimulationData.FUSED_REQUEST);
 
                 try {
-                    SimulationData data = new SimulationData(m, W, C, L, R, rho, mpsFilePath, generatedSSVs);
-                    msg.setContentObject(data);
+                    SimulationData data = new SimulationData(m, W, C, L, R, rho, mpsFilePath, N, 0);
+                    data.seed = incremental ? incrementalSeed : rng.nextLong();
+                    data.incremental = incremental;
+                    data.adaptive = adaptive;
+                    data.epsilon = epsilon;
+                    data.delta = delta;
+                    data.sampling = sampling;
+                    data.tilt = tilt;
+                    data.demands = curveDemands;
+                    data.deadlines = curveDeadlines;
+                    data.sensitivityStep = sensitivityStep;
+                    if (answeredFromCache(msg.getOntology(), data, ttAgent)) {
+                        return;
+                    }
+                    writeContent(msg, data);
+                    RunMetrics.stamp(msg);
+                    requestSentAt = System.nanoTime();
                     send(msg);
                 } catch (IOException e) {
                     e.printStackTrace();
+                    System.out.println(run.finish(false));
                 }
             }
         });
     }
 
+    // a request in the chosen codec; the MPs are read once per run when they go inline
+    private void writeContent(ACLMessage msg, SimulationData data) throws IOException {
+        RunMetrics.Timer timer = run.start(RunMetrics.Phase.SERIALIZATION);
+        if (javaSerialization) {
+            msg.setContentObject(data);
+        } else {
+            if (inlineMPs && !data.hasInlinePaths()) {
+                data.inlinePaths(PathIndex.load(Path.of(data.mpsFilePath)));
+            }
+            SimulationDataCodec.write(msg, data, compress);
+        }
+        timer.stop(0, RunMetrics.contentSize(msg));
+    }
+
+    // shows a cached answer instead of sending the request; on a miss the key waits for the answer
+    private boolean answeredFromCache(String ontology, SimulationData data, AID ttAgent) {
+        double[] query = ttQueries.get(ttAgent);
+        if (cache == null || query == null) {
+            return false;
+        }
+        String key;
+        try {
+            key = ResultCache.key(ontology, data, query[0], query[1]);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        ResultCache.Entry entry = cache.get(key);
+        if (entry == null) {
+            pendingCacheKey = key;
+            return false;
+        }
+        System.out.println("Answered from the " + cache.stats());
+        showResult(entry.fill(new ACLMessage(ACLMessage.INFORM)));
+        return true;
+    }
+
+    // "from:to" or "from:to:step" for a range, otherwise a list of values
+    private static double[] parseDeadlines(String text) {
+        String[] range = text.split(":");
+        if (range.length == 1) {
+            return AgentArgs.parseDoubleArray(text, -1);
+        }
+        double from = Double.parseDouble(range[0]);
+        double to = Double.parseDouble(range[1]);
+        double step = range.length > 2 ? Double.parseDouble(range[2]) : 1.0;
+        if (range.length > 3 || step <= 0 || to < from) {
+            throw new IllegalArgumentException("Expected from:to[:step], got: " + text);
+        }
+        int count = (int) Math.floor((to - from) / step + 1e-9) + 1;
+        double[] deadlines = new double[count];
+        for (int i = 0; i < count; i++) {
+            deadlines[i] = from + i * step;
+        }
+        return deadlines;
+    }
+
+    private void printParameters(int[] W, double[] C, int[] L, double[] R, double[] rho) {
+        System.out.println("It has been created the MFN with the following parameters:");
+        System.out.println("W=" + Arrays.toString(W));
+        System.out.println("C=" + Arrays.toString(C));
+        System.out.println("L=" + Arrays.toString(L));
+        System.out.println("R=" + Arrays.toString(R));
+        System.out.println("rho=" + Arrays.toString(rho));
+    }
+
+    // Sends SSVs to TT in chunks of chunkSize as they are generated. At most `window` chunks
+    // wait for a CONFIRM from TT at any time, so only a few chunks are held in memory and
+    // TT evaluates one chunk while the next one is being generated.
+    private class StreamSSVsBehaviour extends Behaviour {
+        private final String mpsFilePath;
+        private final int m;
+        private final int[] W;
+        private final double[] C;
+        private final int[] L;
+        private final double[] R;
+        private final double[] rho;
+
+        private MFN mfn;
+        private AliasSampler sampler;
+        private AID ttAgent;
+        private String conversationId;
+        private MessageTemplate confirmTemplate;
+        private int sent = 0;      // SSVs sent so far
+        private int chunkIndex = 0;
+        private int inFlight = 0;  // chunks not yet confirmed
+        private long windowFullSince = 0; // nanoTime the window filled up, 0 while chunks can be sent
+        private long lastHeard;           // nanoTime of the last confirmation, or of the first chunk
+        private boolean finished = false;
+
+        StreamSSVsBehaviour(String mpsFilePath, int m, int[] W, double[] C, int[] L, double[] R, double[] rho) {
+            this.mpsFilePath = mpsFilePath;
+            this.m = m;
+            this.W = W;
+            this.C = C;
+            this.L = L;
+            this.R = R;
+            this.rho = rho;
+        }
+
+        @Override
+        public void onStart() {
+            printParameters(W, C, L, R, rho);
+
+            RunMetrics.Timer timer = run.start(RunMetrics.Phase.MODEL);
+            mfn = new MFN(m, W, C, L, R, rho);
+            mfn.loadPaths(mpsFilePath);
+
+            double[][] pmf = mfn.calculatePMF();
+            sampler = new AliasSampler(pmf);
+            timer.stop();
+
+            ttAgent = findTTAgent();
+            if (ttAgent == null) {
+                System.out.println("TT not found");
+                System.out.println(run.finish(false));
+                finished = true;
+                return;
+            }
+
+            System.out.println("Found the following transmission times computing agent:\n" + ttAgent.getName());
+
+            conversationId = getLocalName() + "-run-" + (++runCounter);
+            confirmTemplate = MessageTemplate.and(
+                    MessageTemplate.MatchConversationId(conversationId),
+                    MessageTemplate.MatchPerformative(ACLMessage.CONFIRM));
+
+            try {
+                SimulationData data = new SimulationData(m, W, C, L, R, rho, mpsFilePath, N, chunkSize);
+                ACLMessage start = newMessage(SSVChunk.STREAM_START);
+                writeContent(start, data);
+                RunMetrics.stamp(start);
+                send(start);
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.out.println(run.finish(false));
+                finished = true;
+            }
+        }
+
+        @Override
+        public void action() {
+            if (finished) return;
+
+            // collect confirmations of already evaluated chunks
+            ACLMessage confirm;
+            while ((confirm = receive(confirmTemplate)) != null) {
+                inFlight--;
+                lastHeard = System.nanoTime();
+            }
+
+            if (sent < N && inFlight < window) {
+                if (windowFullSince != 0) {
+                    run.record(RunMetrics.Phase.QUEUE_WAIT, System.nanoTime() - windowFullSince, 0, 0, 0);
+                    windowFullSince = 0;
+                }
+                int rows = Math.min(chunkSize, N - sent);
+                RunMetrics.Timer timer = run.start(RunMetrics.Phase.SAMPLING);
+                SSVStore states = mfn.randomStates(rows, sampler, rng);
+                timer.stop(rows, 0);
+                if (inFlight == 0) {
+                    lastHeard = System.nanoTime(); // the timeout runs from the oldest unconfirmed chunk
+                }
+                try {
+                    send(createMessage(SSVChunk.STREAM_CHUNK, new SSVChunk(chunkIndex++, states)));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    System.out.println(run.finish(false));
+                    finished = true;
+                    return;
+                }
+                sent += rows;
+                inFlight++;
+            } else if (sent == N && inFlight == 0) {
+                System.out.println(N + " random SSVs have been generated!");
+                ACLMessage end = new ACLMessage(ACLMessage.REQUEST);
+                end.addReceiver(ttAgent);
+                end.setConversationId(conversationId);
+                end.setOntology(SSVChunk.STREAM_END);
+                end.setContent(String.valueOf(chunkIndex));
+                RunMetrics.stamp(end);
+                requestSentAt = System.nanoTime();
+                send(end);
+                finished = true;
+                RunMetrics streamRun = run;
+                myAgent.addBehaviour(new WakerBehaviour(myAgent, streamTimeout) {
+                    @Override
+                    protected void onWake() {
+                        if (run == streamRun && !streamRun.isFinished()) {
+                            abortRun("TT sent no result within " + streamTimeout + " ms after the end of the stream");
+                        }
+                    }
+                });
+            } else {
+                if (sent < N && windowFullSince == 0) {
+                    windowFullSince = System.nanoTime(); // all `window` chunks are waiting for TT
+                }
+                long waited = (System.nanoTime() - lastHeard) / 1_000_000;
+                if (inFlight > 0 && waited >= streamTimeout) {
+                    finished = true;
+                    abortRun("TT confirmed no chunk for " + waited + " ms, " + inFlight + " chunks unconfirmed");
+                    return;
+                }
+                if (inFlight > 0) {
+                    block(streamTimeout - waited);
+                } else {
+                    block();
+                }
+            }
+        }
+
+        @Override
+        public boolean done() {
+            return finished;
+        }
+
+        private ACLMessage newMessage(String ontology) {
+            ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
+            msg.addReceiver(ttAgent);
+            msg.setConversationId(conversationId);
+            msg.setOntology(ontology);
+            return msg;
+        }
+
+        private ACLMessage createMessage(String ontology, Serializable content) throws IOException {
+            ACLMessage msg = newMessage(ontology);
+            RunMetrics.Timer timer = run.start(RunMetrics.Phase.SERIALIZATION);
+            msg.setContentObject(content);
+            timer.stop(0, RunMetrics.contentSize(msg));
+            RunMetrics.stamp(msg);
+            return msg;
+        }
+    }
+
+    // Draws the SSVs into a mapped file, chunk rows per action as the stream mode does, then sends
+    // TT a request with the handle of the file only. The states are the same as in stream mode.
+    private class SharedSSVsBehaviour extends Behaviour {
+        private final SimulationData data;
+        private MFN mfn;
+        private AliasSampler sampler;
+        private SharedSSVs shared;
+        private int drawn = 0;
+        private boolean finished = false;
+
+        SharedSSVsBehaviour(String mpsFilePath, int m, int[] W, double[] C, int[] L, double[] R, double[] rho) {
+            this.data = new SimulationData(m, W, C, L, R, rho, mpsFilePath, N, 0);
+        }
+
+        @Override
+        public void onStart() {
+            printParameters(data.W, data.C, data.L, data.R, data.rho);
+
+            RunMetrics.Timer timer = run.start(RunMetrics.Phase.MODEL);
+            mfn = new MFN(data.m, data.W, data.C, data.L, data.R, data.rho);
+            sampler = new AliasSampler(mfn.calculatePMF());
+            timer.stop();
+
+            deleteSharedFile(); // of the previous run
+            try {
+                sharedFile = Files.createTempFile(sharedDir, getLocalName() + "-ssvs-", ".bin");
+                shared = SharedSSVs.create(sharedFile, N, mfn);
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.out.println(run.finish(false));
+                finished = true;
+            }
+        }
+
+        @Override
+        public void action() {
+            if (finished) return;
+            if (drawn < N) {
+                int rows = Math.min(chunkSize, N - drawn);
+                RunMetrics.Timer timer = run.start(RunMetrics.Phase.SAMPLING);
+                for (int n = drawn; n < drawn + rows; n++) {
+                    SSVStore window = shared.window(n / shared.getWindowRows());
+                    sampler.fillStates(window, n % shared.getWindowRows(), rng);
+                }
+                timer.stop(rows, 0);
+                drawn += rows;
+                return;
+            }
+            System.out.println(N + " random SSVs have been written to " + sharedFile);
+            finished = true;
+
+            AID ttAgent = findTTAgent();
+            if (ttAgent == null) {
+                System.out.println("TT not found");
+                System.out.println(run.finish(false));
+                deleteSharedFile();
+                return;
+            }
+            System.out.println("Found the following transmission times computing agent:\n" + ttAgent.getName());
+            shared.describe(data, sharedFile);
+            ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
+            msg.addReceiver(ttAgent);
+            msg.setOntology(SimulationData.SHARED_REQUEST);
+            try {
+                writeContent(msg, data);
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.out.println(run.finish(false));
+                deleteSharedFile();
+                return;
+            }
+            RunMetrics.stamp(msg);
+            requestSentAt = System.nanoTime();
+            send(msg);
+        }
+
+        @Override
+        public boolean done() {
+            return finished;
+        }
+    }
+
+    private void deleteSharedFile() {
+        if (sharedFile == null) return;
+        try {
+            Files.deleteIfExists(sharedFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        sharedFile = null;
+    }
+
+    // ends a run that TT does not answer as failed
+    private void abortRun(String reason) {
+        System.out.println(reason + ", run aborted");
+        System.out.println(run.finish(false));
+        deleteSharedFile();
+        doDelete();
+    }
+
     private AID findTTAgent() {
+        List<AID> agents = findTTAgents();
+        return agents.isEmpty() ? null : agents.get(0);
+    }
+
+    // d and T from the DF properties of a TT agent, if it registered them
+    private void rememberQuery(DFAgentDescription description) {
+        Double d = null;
+        Double T = null;
+        Iterator services = description.getAllServices();
+        while (services.hasNext()) {
+            Iterator properties = ((ServiceDescription) services.next()).getAllProperties();
+            while (properties.hasNext()) {
+                Property property = (Property) properties.next();
+                if ("d".equals(property.getName())) {
+                    d = Double.parseDouble(property.getValue().toString());
+                } else if ("T".equals(property.getName())) {
+                    T = Double.parseDouble(property.getValue().toString());
+                }
+            }
+        }
+        if (d != null && T != null) {
+            ttQueries.put(description.getName(), new double[]{d, T});
+        }
+    }
+
+    private List<AID> findTTAgents() {
+        List<AID> agents = new ArrayList<>();
         DFAgentDescription template = new DFAgentDescription();
         ServiceDescription sd = new ServiceDescription();
         sd.setType("transmission-time-estimation");
         template.addServices(sd);
         try {
             DFAgentDescription[] result = DFService.search(this, template);
-            if (result.length > 0) {
-                return result[0].getName();
+            for (DFAgentDescription description : result) {
+                agents.add(description.getName());
+                rememberQuery(description);
             }
         } catch (FIPAException fe) {
             fe.printStackTrace();
         }
-        return null;
+        return agents;
+    }
+
+    // Coordinator mode: the fused blocks of the N SSVs are shared out among all TT agents found in
+    // the DF, one shard per agent at a time. Every block has its own generator derived from the
+    // seed (FusedEstimator.blockCounter), so a shard gives the same count on any agent and can be
+    // sent to another one when its agent fails or does not answer in time. The first shards are
+    // small; later ones are sized from each agent's measured blocks per second.
+    private class CoordinatorBehaviour extends Behaviour {
+        private final SimulationData data;
+        private final int totalBlocks;
+        private final ArrayDeque<int[]> pending = new ArrayDeque<>(); // block ranges nobody is counting
+        private final Map<AID, Worker> workers = new LinkedHashMap<>();
+        private final Map<String, Shard> running = new HashMap<>();   // by reply-with id
+        private String conversationId;
+        private MessageTemplate replyTemplate;
+        private int pendingBlocks;
+        private int countedBlocks = 0;
+        private long successCount = 0;
+        private int shardCounter = 0;
+        private long started;
+        private boolean finished = false;
+
+        CoordinatorBehaviour(SimulationData data) {
+            this.data = data;
+            this.totalBlocks = FusedEstimator.blockCount(data.N);
+        }
+
+        @Override
+        public void onStart() {
+            conversationId = getLocalName() + "-run-" + (++runCounter);
+            replyTemplate = MessageTemplate.and(
+                    MessageTemplate.MatchConversationId(conversationId),
+                    MessageTemplate.or(
+                            MessageTemplate.MatchPerformative(ACLMessage.INFORM),
+                            MessageTemplate.MatchPerformative(ACLMessage.FAILURE)));
+
+            pending.add(new int[]{0, totalBlocks});
+            pendingBlocks = totalBlocks;
+            findWorkers();
+            if (liveWorkers() == 0) {
+                System.out.println("TT not found");
+                System.out.println(run.finish(false));
+                finished = true;
+                return;
+            }
+            // the shards add up to the same count as a fused run with this seed, so they share its cache entry
+            AID first = workers.keySet().iterator().next();
+            if (answeredFromCache(SimulationData.FUSED_REQUEST, data, first)) {
+                finished = true;
+                return;
+            }
+            System.out.println("Sharing " + N + " SSVs (" + totalBlocks + " blocks of " + FusedEstimator.BLOCK_SIZE
+                    + ") among " + liveWorkers() + " transmission times computing agents");
+            started = System.nanoTime();
+        }
+
+        @Override
+        public void action() {
+            if (finished) return;
+
+            ACLMessage reply;
+            while ((reply = receive(replyTemplate)) != null) {
+                Shard shard = running.remove(reply.getInReplyTo());
+                if (shard == null) {
+                    continue; // late answer for a shard that has been sent elsewhere
+                }
+                run.received(reply);
+                run.record(RunMetrics.Phase.REMOTE, System.nanoTime() - shard.sentAt, 0, 0, 0);
+                if (reply.getPerformative() == ACLMessage.INFORM) {
+                    completed(shard, Long.parseLong(reply.getContent()));
+                } else {
+                    failed(shard, "failure: " + reply.getContent()); // e.g. the AMS reporting that the agent is gone
+                }
+            }
+
+            long now = System.nanoTime();
+            for (Shard shard : new ArrayList<>(running.values())) {
+                if (now > shard.deadline) {
+                    running.remove(shard.id);
+                    failed(shard, "no answer within " + (shard.deadline - shard.sentAt) / 1_000_000 + " ms");
+                }
+            }
+
+            if (countedBlocks == totalBlocks) {
+                finish();
+                return;
+            }
+            if (liveWorkers() == 0 && running.isEmpty()) {
+                findWorkers(); // agents that joined since the start
+                if (liveWorkers() == 0) {
+                    System.out.println("No transmission times computing agent left, " + (totalBlocks - countedBlocks)
+                            + " blocks could not be evaluated");
+                    System.out.println(run.finish(false));
+                    finished = true;
+                    return;
+                }
+            }
+            dispatch();
+
+            long nextDeadline = Long.MAX_VALUE;
+            for (Shard shard : running.values()) {
+                nextDeadline = Math.min(nextDeadline, shard.deadline);
+            }
+            block(Math.max(1, (nextDeadline - System.nanoTime()) / 1_000_000 + 1));
+        }
+
+        @Override
+        public boolean done() {
+            return finished;
+        }
+
+        private void findWorkers() {
+            for (AID aid : findTTAgents()) {
+                workers.putIfAbsent(aid, new Worker(aid));
+            }
+        }
+
+        private int liveWorkers() {
+            int live = 0;
+            for (Worker worker : workers.values()) {
+                if (worker.alive) live++;
+            }
+            return live;
+        }
+
+        private void dispatch() {
+            for (Worker worker : workers.values()) {
+                if (!worker.alive || worker.busy || pending.isEmpty()) continue;
+
+                int[] range = pending.pollFirst();
+                int size = shardSize(worker);
+                if (range[1] - range[0] > size) {
+                    pending.addFirst(new int[]{range[0] + size, range[1]});
+                    range = new int[]{range[0], range[0] + size};
+                }
+                pendingBlocks -= range[1] - range[0];
+
+                Shard shard = new Shard(conversationId + "-shard-" + (++shardCounter), worker, range[0], range[1]);
+                data.firstBlock = shard.from;
+                data.blockEnd = shard.to;
+                ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
+                msg.addReceiver(worker.aid);
+                msg.setConversationId(conversationId);
+                msg.setReplyWith(shard.id);
+                msg.setOntology(SimulationData.SHARD_REQUEST);
+                try {
+                    writeContent(msg, data);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    System.out.println(run.finish(false));
+                    finished = true;
+                    return;
+                }
+                RunMetrics.stamp(msg);
+
+                // an agent gets shardTimeout, or four times what its throughput so far predicts if that is longer
+                long expected = worker.blocksPerSecond > 0 ? (long) (shard.blocks() / worker.blocksPerSecond * 1e9) : 0;
+                shard.sentAt = System.nanoTime();
+                shard.deadline = shard.sentAt + Math.max(shardTimeout * 1_000_000, 4 * expected);
+                worker.busy = true;
+                running.put(shard.id, shard);
+                send(msg);
+            }
+        }
+
+        // small shards until the agent's throughput is known, then shardSeconds worth of blocks,
+        // never more than an even split of what is left so the last shards finish together
+        private int shardSize(Worker worker) {
+            int live = liveWorkers();
+            int fairShare = (pendingBlocks + live - 1) / live;
+            int size = worker.blocksPerSecond > 0
+                    ? (int) Math.min(Integer.MAX_VALUE, worker.blocksPerSecond * shardSeconds)
+                    : totalBlocks / (live * 8);
+            return Math.max(1, Math.min(size, fairShare));
+        }
+
+        private void completed(Shard shard, long shardSuccesses) {
+            Worker worker = shard.worker;
+            successCount += shardSuccesses;
+            countedBlocks += shard.blocks();
+            worker.blocksDone += shard.blocks();
+            worker.busy = false;
+
+            double seconds = Math.max(1e-9, (System.nanoTime() - shard.sentAt) / 1e9);
+            double rate = shard.blocks() / seconds;
+            worker.blocksPerSecond = worker.blocksPerSecond == 0 ? rate : (worker.blocksPerSecond + rate) / 2;
+        }
+
+        // the shard goes back to the front of the queue, the agent gets no more shards
+        private void failed(Shard shard, String reason) {
+            Worker worker = shard.worker;
+            worker.alive = false;
+            worker.busy = false;
+            pending.addFirst(new int[]{shard.from, shard.to});
+            pendingBlocks += shard.blocks();
+            System.out.println("Shard " + shard.id + " of " + worker.aid.getLocalName() + " (blocks " + shard.from
+                    + ".." + shard.to + ") is sent again, " + reason);
+        }
+
+        private void finish() {
+            finished = true;
+            long elapsed = (System.nanoTime() - started) / 1_000_000;
+            System.out.println(N + " SSVs evaluated by " + workers.size() + " agents in " + elapsed + " ms:");
+            for (Worker worker : workers.values()) {
+                System.out.println("  " + worker.aid.getLocalName() + ": " + worker.blocksDone + " blocks, "
+                        + String.format("%.1f", worker.blocksPerSecond) + " blocks/s" + (worker.alive ? "" : " (dropped)"));
+            }
+            ACLMessage result = new ACLMessage(ACLMessage.INFORM);
+            result.setOntology(SimulationData.FUSED_REQUEST);
+            result.setContent(String.valueOf((double) successCount / N));
+            if (pendingCacheKey != null) {
+                cache.put(pendingCacheKey, new ResultCache.Entry(result));
+                pendingCacheKey = null;
+            }
+            showResult(result);
+        }
+    }
+
+    private static class Worker {
+        final AID aid;
+        boolean alive = true;
+        boolean busy = false;
+        int blocksDone = 0;
+        double blocksPerSecond = 0; // running average over its shards, 0 until the first one is back
+
+        Worker(AID aid) {
+            this.aid = aid;
+        }
+    }
+
+    private static class Shard {
+        final String id;
+        final Worker worker;
+        final int from;
+        final int to;
+        long sentAt;
+        long deadline;
+
+        Shard(String id, Worker worker, int from, int to) {
+            this.id = id;
+            this.worker = worker;
+            this.from = from;
+            this.to = to;
+        }
+
+        int blocks() {
+            return to - from;
+        }
+    }
+
+    // prints the answer of TT (or of the cache) and ends the agent, unless more incremental runs can follow
+    private void showResult(ACLMessage msg) {
+        if (SimulationData.CURVE_REQUEST.equals(msg.getOntology())) {
+            try {
+                ReliabilityCurve curve = (ReliabilityCurve) msg.getContentObject();
+                System.out.println("Estimated reliability curves from " + curve.getSamples() + " SSVs:");
+                for (int k = 0; k < curve.getDemandCount(); k++) {
+                    System.out.println(curve.format(k, curveDeadlines));
+                }
+            } catch (UnreadableException e) {
+                e.printStackTrace();
+            }
+        } else if (SimulationData.SENSITIVITY_REQUEST.equals(msg.getOntology())) {
+            try {
+                SensitivityReport report = (SensitivityReport) msg.getContentObject();
+                System.out.println(report.format());
+            } catch (UnreadableException e) {
+                e.printStackTrace();
+            }
+        } else {
+            System.out.println("Estimated network reliability is equal to " + msg.getContent());
+            String samples = msg.getUserDefinedParameter("samples-used");
+            if (samples != null) {
+                System.out.println("Samples used: " + samples + " of the worst-case " + N
+                        + ", estimated time saved: " + msg.getUserDefinedParameter("time-saved-ms") + " ms");
+            }
+            String variance = msg.getUserDefinedParameter("variance");
+            if (variance != null) {
+                System.out.println("Variance of the estimate: " + variance + ", samples needed for epsilon=" + epsilon
+                        + ": " + msg.getUserDefinedParameter("samples-for-epsilon"));
+            }
+            String resampled = msg.getUserDefinedParameter("resampled-links");
+            if (resampled != null) {
+                System.out.println("Incremental run: links redrawn " + resampled + ", SSVs re-evaluated "
+                        + msg.getUserDefinedParameter("reevaluated") + " of " + N);
+            }
+            if (samples != null) {
+                run.setSamples(Long.parseLong(samples));
+            }
+        }
+        System.out.println(run.finish(true));
+        deleteSharedFile();
+        if (incremental && gui != null) {
+            return; // edit the links and send again
+        }
+        doDelete();
     }
 
     private class ReceiveReliabilityBehaviour extends CyclicBehaviour {
         @Override
         public void action() {
-            ACLMessage msg = receive();
-            if (msg != null && msg.getPerformative() == ACLMessage.INFORM) {
-                System.out.println("Estimated network reliability is equal to " + msg.getContent());
+            // shard answers and failures of the coordinator mode are taken by CoordinatorBehaviour
+            ACLMessage msg = receive(MessageTemplate.and(
+                    MessageTemplate.MatchPerformative(ACLMessage.INFORM),
+                    MessageTemplate.not(MessageTemplate.MatchOntology(SimulationData.SHARD_REQUEST))));
+            if (msg != null) {
+                run.received(msg);
+                run.record(RunMetrics.Phase.REMOTE, System.nanoTime() - requestSentAt, 0, 0, 0);
+                if (pendingCacheKey != null) {
+                    cache.put(pendingCacheKey, new ResultCache.Entry(msg));
+                    pendingCacheKey = null;
+                }
+                showResult(msg);
+            } else if ((msg = receive(MessageTemplate.and(
+                    MessageTemplate.MatchPerformative(ACLMessage.FAILURE),
+                    MessageTemplate.not(MessageTemplate.MatchOntology(SimulationData.SHARD_REQUEST))))) != null) {
+                // TT could not answer, or the platform could not deliver a request or chunk to it
+                String ontology = msg.getOntology();
+                System.out.println("TT could not compute the " + (SimulationData.CURVE_REQUEST.equals(ontology)
+                        ? "reliability curves" : SimulationData.SENSITIVITY_REQUEST.equals(ontology)
+                        ? "link importance" : "reliability") + ": " + msg.getContent());
+                pendingCacheKey = null;
+                deleteSharedFile();
+                System.out.println(run.finish(false));
+                if (incremental && gui != null) {
+                    return; // the network can be sent again
+                }
                 doDelete();
             } else {
                 block();
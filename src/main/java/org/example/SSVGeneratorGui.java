@@ -5,9 +5,15 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
-import java.util.StringTokenizer;
 
 public class SSVGeneratorGui extends JFrame {
+    // example network shown when the window opens, also used by SSVGenerator with gui=false
+    static final String DEFAULT_W = "4, 3, 2, 3, 2";
+    static final String DEFAULT_C = "10, 15, 25, 15, 20";
+    static final String DEFAULT_L = "5, 7, 6, 5, 8";
+    static final String DEFAULT_R = "0.7, 0.65, 0.67, 0.71, 0.75";
+    static final String DEFAULT_RHO = "0.1, 0.3, 0.5, 0.7, 0.9";
+
     private SSVGenerator myAgent;
 
     private JTextField linksField, wField, cField, lField, rField, rhoField, fileField;
@@ -40,23 +46,23 @@ public class SSVGeneratorGui extends JFrame {
         add(filePanel);
 
         add(new JLabel("The component numbers vector (W):"));
-        wField = new JTextField("4, 3, 2, 3, 2");
+        wField = new JTextField(DEFAULT_W);
         add(wField);
 
         add(new JLabel("The component capacities vector (C):"));
-        cField = new JTextField("10, 15, 25, 15, 20");
+        cField = new JTextField(DEFAULT_C);
         add(cField);
 
         add(new JLabel("The lead time vector (L):"));
-        lField = new JTextField("5, 7, 6, 5, 8");
+        lField = new JTextField(DEFAULT_L);
         add(lField);
 
         add(new JLabel("The component reliabilities vector (R):"));
-        rField = new JTextField("0.7, 0.65, 0.67, 0.71, 0.75");
+        rField = new JTextField(DEFAULT_R);
         add(rField);
 
         add(new JLabel("The vector of correlation (rho):"));
-        rhoField = new JTextField("0.1, 0.3, 0.5, 0.7, 0.9");
+        rhoField = new JTextField(DEFAULT_RHO);
         add(rhoField);
 
         add(new JLabel(""));
@@ -100,19 +106,12 @@ public class SSVGeneratorGui extends JFrame {
         });
     }
 
-    private int[] parseIntArray(String text, int expectedSize) {
-        StringTokenizer st = new StringTokenizer(text, ",; ");
-        int[] arr = new int[st.countTokens()];
-        if (arr.length != expectedSize) throw new IllegalArgumentException("Vector size mismatch. Expected " + expectedSize + ", got " + arr.length);
-        for (int i = 0; i < arr.length; i++) arr[i] = Integer.parseInt(st.nextToken());
-        return arr;
+    // the text fields are parsed like the agent arguments
+    static int[] parseIntArray(String text, int expectedSize) {
+        return AgentArgs.parseIntArray(text, expectedSize);
     }
 
-    private double[] parseDoubleArray(String text, int expectedSize) {
-        StringTokenizer st = new StringTokenizer(text, ",; ");
-        double[] arr = new double[st.countTokens()];
-        if (arr.length != expectedSize) throw new IllegalArgumentException("Vector size mismatch. Expected " + expectedSize + ", got " + arr.length);
-        for (int i = 0; i < arr.length; i++) arr[i] = Double.parseDouble(st.nextToken());
-        return arr;
+    static double[] parseDoubleArray(String text, int expectedSize) {
+        return AgentArgs.parseDoubleArray(text, expectedSize);
     }
 }
\ No newline at end of file
@@ -0,0 +1,167 @@
+package org.example;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// N system states stored as numbers of working components (k), not capacities.
+// States are kept row-major in one flat array whose element width is chosen from max W:
+// 1 byte up to 255 components, 2 bytes up to 65535, 4 bytes above that.
+// The capacity of link i is k * C[i] and is computed on access.
+// A store can also be a view of states in a (memory-mapped) ByteBuffer in the same layout,
+// little-endian, see SharedSSVs; such a store is not serialized.
+public class SSVStore implements Serializable {
+    private static final int MAPPED = 8; // layout of a buffer view: MAPPED + width
+
+    private final int m;
+    private final int size;
+    private final int width; // bytes per state
+    private final int layout; // width for the arrays, MAPPED + width for a buffer view
+    private final byte[] bytes;
+    private final short[] shorts;
+    private final int[] ints;
+    private final transient ByteBuffer buffer;
+
+    public SSVStore(int size, int m, int maxW) {
+        this.m = m;
+        this.size = size;
+        long cells = (long) size * m;
+        if (cells > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many SSVs for one store: " + size + " x " + m);
+        }
+        width = widthFor(maxW);
+        layout = width;
+        buffer = null;
+        if (width == 1) {
+            bytes = new byte[(int) cells];
+            shorts = null;
+            ints = null;
+        } else if (width == 2) {
+            bytes = null;
+            shorts = new short[(int) cells];
+            ints = null;
+        } else {
+            bytes = null;
+            shorts = null;
+            ints = new int[(int) cells];
+        }
+    }
+
+    // view of size SSVs of m states of `width` bytes at the start of the buffer, reads and writes
+    // go straight to it
+    public SSVStore(ByteBuffer buffer, int size, int m, int width) {
+        if (width != 1 && width != 2 && width != 4) {
+            throw new IllegalArgumentException("State width must be 1, 2 or 4 bytes");
+        }
+        if ((long) size * m * width > buffer.capacity()) {
+            throw new IllegalArgumentException("Buffer too small for " + size + " x " + m + " states");
+        }
+        this.m = m;
+        this.size = size;
+        this.width = width;
+        this.layout = MAPPED + width;
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        bytes = null;
+        shorts = null;
+        ints = null;
+    }
+
+    // bytes per state a store needs for links of up to maxW components
+    public static int widthFor(int maxW) {
+        return maxW <= 0xFF ? 1 : maxW <= 0xFFFF ? 2 : 4;
+    }
+
+    public static SSVStore forNetwork(int size, MFN mfn) {
+        int maxW = 0;
+        for (int w : mfn.W) {
+            maxW = Math.max(maxW, w);
+        }
+        return new SSVStore(size, mfn.m, maxW);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getLinkCount() {
+        return m;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    // number of working components of link i in SSV n
+    public int getState(int n, int i) {
+        int idx = n * m + i;
+        switch (layout) {
+            case 1:
+                return bytes[idx] & 0xFF;
+            case 2:
+                return shorts[idx] & 0xFFFF;
+            case 4:
+                return ints[idx];
+            case MAPPED + 1:
+                return buffer.get(idx) & 0xFF;
+            case MAPPED + 2:
+                return buffer.getShort(idx << 1) & 0xFFFF;
+            default:
+                return buffer.getInt(idx << 2);
+        }
+    }
+
+    public void setState(int n, int i, int k) {
+        int idx = n * m + i;
+        switch (layout) {
+            case 1:
+                bytes[idx] = (byte) k;
+                break;
+            case 2:
+                shorts[idx] = (short) k;
+                break;
+            case 4:
+                ints[idx] = k;
+                break;
+            case MAPPED + 1:
+                buffer.put(idx, (byte) k);
+                break;
+            case MAPPED + 2:
+                buffer.putShort(idx << 1, (short) k);
+                break;
+            default:
+                buffer.putInt(idx << 2, k);
+        }
+    }
+
+    // states of link i in SSVs [from, to) into out[0 .. to - from), for the column-wise engine
+    void column(int i, int from, int to, int[] out) {
+        int idx = from * m + i;
+        int count = to - from;
+        switch (layout) {
+            case 1:
+                for (int k = 0; k < count; k++, idx += m) out[k] = bytes[idx] & 0xFF;
+                break;
+            case 2:
+                for (int k = 0; k < count; k++, idx += m) out[k] = shorts[idx] & 0xFFFF;
+                break;
+            case 4:
+                for (int k = 0; k < count; k++, idx += m) out[k] = ints[idx];
+                break;
+            default:
+                for (int k = 0; k < count; k++, idx += m) out[k] = getState(from + k, i);
+        }
+    }
+
+    // capacity of link i in SSV n, the same value randomSSV stores in double[][]
+    public double getCapacity(int n, int i, double[] C) {
+        return getState(n, i) * C[i];
+    }
+
+    public double[] toSSV(int n, double[] C) {
+        double[] ssv = new double[m];
+        for (int i = 0; i < m; i++) {
+            ssv[i] = getCapacity(n, i, C);
+        }
+        return ssv;
+    }
+}
@@ -0,0 +1,189 @@
+package org.example;
+
+import java.util.SplittableRandom;
+
+// Implementations of SamplingStrategy. All of them except Importance sample the model
+// distribution (weights = 1); they differ only in how the per-link uniforms are coupled.
+public final class SamplingStrategies {
+    private SamplingStrategies() {
+    }
+
+    // the link that appears in most minimal paths, the one worth stratifying
+    static int mostUsedLink(MFN mfn) {
+        int[] uses = new int[mfn.m];
+        PathIndex paths = mfn.getPathIndex();
+        for (int j = 0; j < paths.linkCount(); j++) {
+            uses[paths.link(j)]++;
+        }
+        int best = 0;
+        for (int i = 1; i < mfn.m; i++) {
+            if (uses[i] > uses[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static void fillOnes(double[] weights, int rows) {
+        for (int n = 0; n < rows; n++) {
+            weights[n] = 1.0;
+        }
+    }
+
+    // independent draws, the reference
+    public static class Plain implements SamplingStrategy {
+        private final AliasSampler sampler;
+
+        public Plain(AliasSampler sampler) {
+            this.sampler = sampler;
+        }
+
+        @Override
+        public void draw(SSVStore buffer, double[] weights, int rows, SplittableRandom rng) {
+            for (int n = 0; n < rows; n++) {
+                sampler.fillStates(buffer, n, rng);
+            }
+            fillOnes(weights, rows);
+        }
+    }
+
+    // the uniform of one link is stratified into `rows` equal strata, one draw per stratum,
+    // the other links are drawn independently
+    public static class Stratified implements SamplingStrategy {
+        private final double[][] cdf;
+        private final int link;
+
+        public Stratified(double[][] cdf, int link) {
+            this.cdf = cdf;
+            this.link = link;
+        }
+
+        @Override
+        public void draw(SSVStore buffer, double[] weights, int rows, SplittableRandom rng) {
+            for (int n = 0; n < rows; n++) {
+                for (int i = 0; i < cdf.length; i++) {
+                    double u = i == link ? (n + rng.nextDouble()) / rows : rng.nextDouble();
+                    buffer.setState(n, i, MFN.inverseCDF(cdf[i], u));
+                }
+            }
+            fillOnes(weights, rows);
+        }
+    }
+
+    // every link is stratified as above, with an independent random permutation of strata per link
+    public static class LatinHypercube implements SamplingStrategy {
+        private final double[][] cdf;
+
+        public LatinHypercube(double[][] cdf) {
+            this.cdf = cdf;
+        }
+
+        @Override
+        public void draw(SSVStore buffer, double[] weights, int rows, SplittableRandom rng) {
+            int[] strata = new int[rows];
+            for (int i = 0; i < cdf.length; i++) {
+                for (int n = 0; n < rows; n++) {
+                    strata[n] = n;
+                }
+                // Fisher-Yates shuffle
+                for (int n = rows - 1; n > 0; n--) {
+                    int j = rng.nextInt(n + 1);
+                    int tmp = strata[n];
+                    strata[n] = strata[j];
+                    strata[j] = tmp;
+                }
+                for (int n = 0; n < rows; n++) {
+                    double u = (strata[n] + rng.nextDouble()) / rows;
+                    buffer.setState(n, i, MFN.inverseCDF(cdf[i], u));
+                }
+            }
+            fillOnes(weights, rows);
+        }
+    }
+
+    // rows come in pairs (u, 1 - u); the inverse CDF is monotone, so the pair is negatively correlated
+    public static class Antithetic implements SamplingStrategy {
+        private final double[][] cdf;
+
+        public Antithetic(double[][] cdf) {
+            this.cdf = cdf;
+        }
+
+        @Override
+        public void draw(SSVStore buffer, double[] weights, int rows, SplittableRandom rng) {
+            for (int n = 0; n < rows; n += 2) {
+                for (int i = 0; i < cdf.length; i++) {
+                    double u = rng.nextDouble();
+                    buffer.setState(n, i, MFN.inverseCDF(cdf[i], u));
+                    if (n + 1 < rows) {
+                        buffer.setState(n + 1, i, MFN.inverseCDF(cdf[i], 1.0 - u));
+                    }
+                }
+            }
+            fillOnes(weights, rows);
+        }
+    }
+
+    // Exponential tilt of the number of failed components: q_i(k) ~ p_i(k) * tilt^(W_i - k).
+    // tilt > 1 makes failures more frequent, which is what matters for highly reliable
+    // networks where failures are rare; every row is reweighted with prod p_i(k_i) / q_i(k_i).
+    // q is built in log space, so wide links do not overflow; a row whose weight is not finite
+    // is rejected with an IllegalArgumentException.
+    public static class Importance implements SamplingStrategy {
+        private final AliasSampler sampler;
+        private final double[][] logRatio; // log p_i(k) - log q_i(k)
+
+        public Importance(double[][] pmf, int[] W, double tilt) {
+            if (!(tilt > 0)) {
+                throw new IllegalArgumentException("Importance sampling tilt must be positive");
+            }
+            double logTilt = Math.log(tilt);
+            int m = pmf.length;
+            double[][] tilted = new double[m][];
+            logRatio = new double[m][];
+            for (int i = 0; i < m; i++) {
+                int w = pmf[i].length;
+                double[] logQ = new double[w];
+                double max = Double.NEGATIVE_INFINITY;
+                for (int k = 0; k < w; k++) {
+                    logQ[k] = pmf[i][k] > 0 ? Math.log(pmf[i][k]) + (W[i] - k) * logTilt : Double.NEGATIVE_INFINITY;
+                    max = Math.max(max, logQ[k]);
+                }
+                tilted[i] = new double[w];
+                double sum = 0;
+                for (int k = 0; k < w; k++) {
+                    tilted[i][k] = Math.exp(logQ[k] - max);
+                    sum += tilted[i][k];
+                }
+                double logNorm = max + Math.log(sum);
+                if (!Double.isFinite(logNorm)) {
+                    throw new IllegalArgumentException("Importance sampling: no finite tilted PMF for link " + i);
+                }
+                logRatio[i] = new double[w];
+                for (int k = 0; k < w; k++) {
+                    tilted[i][k] /= sum;
+                    // log p - log q = -(W - k) log tilt + log of the normalisation
+                    logRatio[i][k] = pmf[i][k] > 0 ? logNorm - (W[i] - k) * logTilt : 0.0;
+                }
+            }
+            sampler = new AliasSampler(tilted);
+        }
+
+        @Override
+        public void draw(SSVStore buffer, double[] weights, int rows, SplittableRandom rng) {
+            for (int n = 0; n < rows; n++) {
+                double logWeight = 0;
+                for (int i = 0; i < logRatio.length; i++) {
+                    int k = sampler.sample(i, rng);
+                    buffer.setState(n, i, k);
+                    logWeight += logRatio[i][k];
+                }
+                weights[n] = Math.exp(logWeight);
+                if (!(weights[n] < Double.POSITIVE_INFINITY)) {
+                    throw new IllegalArgumentException("Importance sampling weight " + weights[n]
+                            + " is not finite, the tilt is too strong for this network");
+                }
+            }
+        }
+    }
+}
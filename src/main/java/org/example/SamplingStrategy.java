@@ -0,0 +1,33 @@
+package org.example;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Draws system states for the weighted Monte Carlo estimator. weights[n] is the likelihood
+// ratio p(x_n) / q(x_n) of row n, 1 for every strategy that samples from the model itself.
+// Rows of one call are not necessarily independent (stratified, Latin hypercube and
+// antithetic rows are coupled), the estimator treats every call as one replicate.
+public interface SamplingStrategy {
+    List<String> NAMES = List.of("plain", "stratified", "lhs", "antithetic", "importance");
+
+    void draw(SSVStore buffer, double[] weights, int rows, SplittableRandom rng);
+
+    // tilt is used by importance sampling only, see SamplingStrategies.Importance
+    static SamplingStrategy forName(String name, MFN mfn, double[][] pmf, double tilt) {
+        double[][] cdf = mfn.CDF(pmf);
+        switch (name) {
+            case "plain":
+                return new SamplingStrategies.Plain(new AliasSampler(pmf));
+            case "stratified":
+                return new SamplingStrategies.Stratified(cdf, SamplingStrategies.mostUsedLink(mfn));
+            case "lhs":
+                return new SamplingStrategies.LatinHypercube(cdf);
+            case "antithetic":
+                return new SamplingStrategies.Antithetic(cdf);
+            case "importance":
+                return new SamplingStrategies.Importance(pmf, mfn.W, tilt);
+            default:
+                throw new IllegalArgumentException("Unknown sampling strategy: " + name);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package org.example;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+
+// Which link to upgrade: Birnbaum importance and finite-difference derivatives of the
+// reliability for (d, T) with respect to every link's parameters, from one pass over N SSVs.
+// All perturbed networks see the same samples (common random numbers): every SSV is drawn as
+// one uniform u_i per link and its states by inverse CDF, so a network whose link i has another
+// distribution (r_i, rho_i, w_i changed) gets state inverseCDF(cdf'_i, u_i) and the same states
+// elsewhere. A perturbed network is evaluated only where it can answer differently from the
+// original one, e.g. when the state of link i actually changes.
+//
+// Per link i (SensitivityReport.CONTRASTS):
+//   Birnbaum     R(link i perfect, w_i working) - R(link i failed)
+//   +1 component R(w_i + 1) - R
+//   dR/dr, dR/drho  central differences with r_i, rho_i +- step
+//   dR/dc        R is a step function of c_i (formula (3) has ceil(d / c)), so the difference is
+//                taken between the nearest capacities below and above c_i at which a path needs
+//                one component of link i more or less; 0 if there is no such capacity
+//   dR/dl        (R(l_i + 1) - R(l_i - 1)) / 2, one-sided at l_i = 0
+public class SensitivityEstimator {
+    public static final double DEFAULT_STEP = 0.01;
+
+    private final MFN mfn;
+    private final double[][] cdf;
+    private final EvaluationPlan plan;
+    private final Variant[] high; // the two networks compared by contrast k of link i,
+    private final Variant[] low;  // at i * CONTRASTS + k; null is the original network
+    private final double[] width; // parameter difference between high and low
+
+    // a copy of the network with one link changed: another state distribution (cdf), state
+    // (forcedState >= 0) or deadline check (plan); sign > 0 if it can only meet the deadline
+    // more often than the original, < 0 if only less often
+    private static class Variant {
+        final int link;
+        final int forcedState;
+        final double[] cdf;
+        final EvaluationPlan plan;
+        final int sign;
+
+        Variant(int link, int forcedState, double[] cdf, EvaluationPlan plan, int sign) {
+            this.link = link;
+            this.forcedState = forcedState;
+            this.cdf = cdf;
+            this.plan = plan;
+            this.sign = sign;
+        }
+    }
+
+    public SensitivityEstimator(MFN mfn, double[][] pmf, double d, double T, double step) {
+        if (!(step > 0 && step < 1)) {
+            throw new IllegalArgumentException("Sensitivity step must be in range (0, 1)");
+        }
+        this.mfn = mfn;
+        this.cdf = mfn.CDF(pmf);
+        this.plan = new EvaluationPlan(mfn, pmf, d, T);
+
+        int m = mfn.m;
+        int contrasts = SensitivityReport.CONTRASTS;
+        high = new Variant[m * contrasts];
+        low = new Variant[m * contrasts];
+        width = new double[m * contrasts];
+        for (int i = 0; i < m; i++) {
+            int at = i * contrasts;
+
+            high[at + SensitivityReport.BIRNBAUM] = new Variant(i, mfn.W[i], null, plan, 1);
+            low[at + SensitivityReport.BIRNBAUM] = new Variant(i, 0, null, plan, -1);
+            width[at + SensitivityReport.BIRNBAUM] = 1;
+
+            int[] W = mfn.W.clone();
+            W[i]++;
+            double[][] upgradedPMF = pmf.clone();
+            upgradedPMF[i] = Numerics.linkPMF(W[i], mfn.R[i], mfn.beta[i]);
+            MFN upgraded = copy(W, mfn.C, mfn.L, mfn.R, mfn.rho);
+            high[at + SensitivityReport.UPGRADE] = new Variant(i, -1, cdfRow(upgradedPMF[i]),
+                    new EvaluationPlan(upgraded, upgradedPMF, d, T), 0);
+            width[at + SensitivityReport.UPGRADE] = 1;
+
+            double rUp = Math.min(1, mfn.R[i] + step);
+            double rDown = mfn.R[i] - step > 0 ? mfn.R[i] - step : mfn.R[i];
+            high[at + SensitivityReport.RELIABILITY] = distribution(i, rUp, mfn.rho[i]);
+            low[at + SensitivityReport.RELIABILITY] = distribution(i, rDown, mfn.rho[i]);
+            width[at + SensitivityReport.RELIABILITY] = rUp - rDown;
+
+            double rhoUp = Math.min(1, mfn.rho[i] + step);
+            double rhoDown = Math.max(0, mfn.rho[i] - step);
+            high[at + SensitivityReport.CORRELATION] = distribution(i, mfn.R[i], rhoUp);
+            low[at + SensitivityReport.CORRELATION] = distribution(i, mfn.R[i], rhoDown);
+            width[at + SensitivityReport.CORRELATION] = rhoUp - rhoDown;
+
+            double[] breakpoints = capacityBreakpoints(i, d, T);
+            double[] C = mfn.C.clone();
+            if (breakpoints[1] > mfn.C[i]) {
+                C[i] = breakpoints[1];
+                high[at + SensitivityReport.CAPACITY] = deadlineCheck(i, copy(mfn.W, C.clone(), mfn.L, mfn.R, mfn.rho), pmf, d, T, 1);
+            }
+            if (breakpoints[0] < mfn.C[i]) {
+                C[i] = breakpoints[0];
+                low[at + SensitivityReport.CAPACITY] = deadlineCheck(i, copy(mfn.W, C, mfn.L, mfn.R, mfn.rho), pmf, d, T, -1);
+            }
+            width[at + SensitivityReport.CAPACITY] = breakpoints[1] - breakpoints[0];
+
+            int[] L = mfn.L.clone();
+            L[i] = mfn.L[i] + 1;
+            high[at + SensitivityReport.LEAD_TIME] = deadlineCheck(i, copy(mfn.W, mfn.C, L.clone(), mfn.R, mfn.rho), pmf, d, T, -1);
+            if (mfn.L[i] > 0) {
+                L[i] = mfn.L[i] - 1;
+                low[at + SensitivityReport.LEAD_TIME] = deadlineCheck(i, copy(mfn.W, mfn.C, L, mfn.R, mfn.rho), pmf, d, T, 1);
+            }
+            width[at + SensitivityReport.LEAD_TIME] = mfn.L[i] > 0 ? 2 : 1;
+        }
+    }
+
+    // Capacities of link i next to c_i where R can change: {largest c < c_i at which some path
+    // needs one more component of link i, smallest c > c_i at which one needs one less (or
+    // at which a path that needs more than w_i components becomes possible)}, c_i where none.
+    private double[] capacityBreakpoints(int i, double d, double T) {
+        double c = mfn.C[i];
+        double below = c;
+        double above = Double.POSITIVE_INFINITY;
+        if (c > 0) {
+            below = 0;
+            PathIndex paths = mfn.getPathIndex();
+            int[] leadTimes = mfn.getPathLeadTimes();
+            for (int p = 0; p < paths.size(); p++) {
+                if (!contains(paths, p, i)) continue;
+                double thr = EvaluationPlan.capacityThreshold(d, T - leadTimes[p]);
+                if (Double.isNaN(thr) || thr <= 0) continue; // lead time too long, or any state will do
+                int k = Math.min(EvaluationPlan.minState(thr, c), mfn.W[i] + 1);
+                if (k >= 2) {
+                    double up = thr / (k - 1); // k - 1 components are enough from here on
+                    while (EvaluationPlan.minState(thr, up) > k - 1) up = Math.nextUp(up);
+                    above = Math.min(above, up);
+                }
+                if (k >= 1 && k <= mfn.W[i]) {
+                    double down = thr / k; // k components are not enough below this
+                    while (EvaluationPlan.minState(thr, down) <= k) down = Math.nextDown(down);
+                    below = Math.max(below, down);
+                }
+            }
+            if (below == 0) below = c;
+        }
+        return new double[]{below, above == Double.POSITIVE_INFINITY ? c : above};
+    }
+
+    private static boolean contains(PathIndex paths, int p, int link) {
+        for (int j = paths.start(p); j < paths.end(p); j++) {
+            if (paths.link(j) == link) return true;
+        }
+        return false;
+    }
+
+    private MFN copy(int[] W, double[] C, int[] L, double[] R, double[] rho) {
+        MFN copy = new MFN(mfn.m, W, C, L, R, rho);
+        copy.setPathIndex(mfn.getPathIndex());
+        return copy;
+    }
+
+    private Variant distribution(int i, double r, double rho) {
+        double beta = 1.0 + (rho * (1.0 - r)) / r;
+        return new Variant(i, -1, cdfRow(Numerics.linkPMF(mfn.W[i], r, beta)), plan, 0);
+    }
+
+    private static Variant deadlineCheck(int i, MFN changed, double[][] pmf, double d, double T, int sign) {
+        return new Variant(i, -1, null, new EvaluationPlan(changed, pmf, d, T), sign);
+    }
+
+    private double[] cdfRow(double[] pmfRow) {
+        return mfn.CDF(new double[][]{pmfRow})[0];
+    }
+
+    public SensitivityReport emptyReport() {
+        return new SensitivityReport(mfn.m, width);
+    }
+
+    // adds N SSVs drawn from rng to the report
+    public void addAll(SensitivityReport report, int N, SplittableRandom rng) {
+        int m = mfn.m;
+        double[] u = new double[m];
+        int[] states = new int[m];
+        int contrasts = high.length;
+        for (int n = 0; n < N; n++) {
+            for (int i = 0; i < m; i++) {
+                u[i] = rng.nextDouble();
+                states[i] = MFN.inverseCDF(cdf[i], u[i]);
+            }
+            boolean base = plan.meetsDeadline(states);
+            report.addSample(base);
+            for (int k = 0; k < contrasts; k++) {
+                boolean h = meetsDeadline(high[k], states, u, base);
+                boolean l = meetsDeadline(low[k], states, u, base);
+                if (h != l) {
+                    report.addDifference(k, h);
+                }
+            }
+        }
+    }
+
+    private boolean meetsDeadline(Variant v, int[] states, double[] u, boolean base) {
+        if (v == null || (v.sign > 0 && base) || (v.sign < 0 && !base)) {
+            return base;
+        }
+        int i = v.link;
+        int original = states[i];
+        int state = v.forcedState >= 0 ? v.forcedState : v.cdf != null ? MFN.inverseCDF(v.cdf, u[i]) : original;
+        if (state == original && v.plan == plan) {
+            return base;
+        }
+        states[i] = state;
+        boolean meets = v.plan.meetsDeadline(states);
+        states[i] = original;
+        return meets;
+    }
+
+    // N SSVs in blocks of FusedEstimator.BLOCK_SIZE, each block from its own generator of the seed,
+    // so the report does not depend on the number of workers
+    public CompletableFuture<SensitivityReport> estimate(int N, long seed, ParallelEvaluator evaluator) {
+        return evaluator.reduceAsync(FusedEstimator.blockCount(N), (from, to) -> {
+            SensitivityReport report = emptyReport();
+            for (int b = from; b < to; b++) {
+                addAll(report, Math.min(FusedEstimator.BLOCK_SIZE, N - b * FusedEstimator.BLOCK_SIZE),
+                        FusedEstimator.blockRandom(seed, b));
+            }
+            return report;
+        }, SensitivityReport::merge, 1);
+    }
+}
@@ -0,0 +1,123 @@
+package org.example;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Locale;
+
+// Result of SensitivityEstimator: the reliability of the network and, per link, the contrasts
+// between pairs of perturbed networks evaluated on the same SSVs. For each pair only the SSVs
+// where the two answers differ are counted (up: only the first meets the deadline, down: only
+// the second), which is all the difference and its standard error need.
+public class SensitivityReport implements Serializable {
+    public static final int BIRNBAUM = 0;
+    public static final int UPGRADE = 1;
+    public static final int RELIABILITY = 2;
+    public static final int CORRELATION = 3;
+    public static final int CAPACITY = 4;
+    public static final int LEAD_TIME = 5;
+    public static final int CONTRASTS = 6;
+    public static final String[] LABELS = {"Birnbaum", "+1 component", "dR/dr", "dR/drho", "dR/dc", "dR/dl"};
+
+    private final int m;
+    private final double[] width; // parameter difference of contrast k of link i, at i * CONTRASTS + k
+    private final long[] up;
+    private final long[] down;
+    private long samples = 0;
+    private long successes = 0;
+
+    public SensitivityReport(int m, double[] width) {
+        this.m = m;
+        this.width = width;
+        this.up = new long[width.length];
+        this.down = new long[width.length];
+    }
+
+    void addSample(boolean meetsDeadline) {
+        samples++;
+        if (meetsDeadline) {
+            successes++;
+        }
+    }
+
+    // one SSV on which the two networks of contrast k answer differently
+    void addDifference(int k, boolean firstMeets) {
+        if (firstMeets) {
+            up[k]++;
+        } else {
+            down[k]++;
+        }
+    }
+
+    // adds the counts of a report of the same network, for partial results of the workers
+    public SensitivityReport merge(SensitivityReport other) {
+        for (int k = 0; k < up.length; k++) {
+            up[k] += other.up[k];
+            down[k] += other.down[k];
+        }
+        samples += other.samples;
+        successes += other.successes;
+        return this;
+    }
+
+    public int getLinkCount() {
+        return m;
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    public double reliability() {
+        return (double) successes / samples;
+    }
+
+    // difference of the reliabilities of the two networks of contrast k of link i, per unit of the
+    // parameter; 0 where the parameter was not changed (no capacity at which R can change)
+    public double estimate(int i, int k) {
+        int at = i * CONTRASTS + k;
+        if (width[at] == 0) return 0;
+        return (double) (up[at] - down[at]) / samples / width[at];
+    }
+
+    // standard error of estimate(i, k): the per-SSV difference is -1, 0 or 1
+    public double standardError(int i, int k) {
+        int at = i * CONTRASTS + k;
+        if (width[at] == 0) return 0;
+        double mean = (double) (up[at] - down[at]) / samples;
+        double secondMoment = (double) (up[at] + down[at]) / samples;
+        return Math.sqrt(Math.max(0, secondMoment - mean * mean) / Math.max(1, samples - 1)) / width[at];
+    }
+
+    // links by decreasing Birnbaum importance, ties by the gain of one more component
+    public int[] ranking() {
+        Integer[] order = new Integer[m];
+        for (int i = 0; i < m; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int cmp = Double.compare(estimate(b, BIRNBAUM), estimate(a, BIRNBAUM));
+            return cmp != 0 ? cmp : Double.compare(estimate(b, UPGRADE), estimate(a, UPGRADE));
+        });
+        return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+    }
+
+    // the ranked table, standard errors in parentheses; links are indices as in the MP file
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "Link importance from %d SSVs (common random numbers), reliability %.6f%n",
+                samples, reliability()));
+        sb.append(String.format(Locale.ROOT, "%4s %5s", "rank", "link"));
+        for (String label : LABELS) {
+            sb.append(String.format(Locale.ROOT, " %19s", label));
+        }
+        int[] ranking = ranking();
+        for (int r = 0; r < ranking.length; r++) {
+            int i = ranking[r];
+            sb.append(System.lineSeparator()).append(String.format(Locale.ROOT, "%4d %5d", r + 1, i));
+            for (int k = 0; k < CONTRASTS; k++) {
+                sb.append(String.format(Locale.ROOT, " %9.5f (%7.5f)", estimate(i, k), standardError(i, k)));
+            }
+        }
+        return sb.toString();
+    }
+}
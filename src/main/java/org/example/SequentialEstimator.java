@@ -0,0 +1,74 @@
+package org.example;
+
+// Adaptive sample size: SSVs are drawn and evaluated in rounds of growing size and the run
+// stops as soon as the Wilson score interval of the estimate at confidence 1 - delta has a
+// half-width <= epsilon. The worst-case N of Fishman (12b) is the upper limit, so the run
+// never takes more samples than the fixed-size one. Note that the stopping rule looks at
+// the data, so the nominal confidence is approximate, as for any sequential test.
+public class SequentialEstimator {
+    private final double epsilon;
+    private final double z;
+    private final int maxN;
+
+    public static class Result {
+        public long successCount;
+        public int samplesUsed;
+        public int worstCaseN;
+        public double reliability;
+        public double halfWidth;
+        public long elapsedNanos;
+
+        // time the worst-case run would have taken at the measured sampling rate, minus the actual time
+        public long estimatedNanosSaved() {
+            if (samplesUsed == 0) return 0;
+            return (long) ((double) elapsedNanos / samplesUsed * (worstCaseN - samplesUsed));
+        }
+    }
+
+    public SequentialEstimator(double epsilon, double delta, int maxN) {
+        this.epsilon = epsilon;
+        this.z = MFN.normalICDF(1.0 - (delta / 2.0));
+        this.maxN = maxN;
+    }
+
+    // half-width of the Wilson score interval for successCount successes in n trials
+    public static double wilsonHalfWidth(long successCount, long n, double z) {
+        if (n == 0) return Double.POSITIVE_INFINITY;
+        double p = (double) successCount / n;
+        double z2 = z * z;
+        return z / (1.0 + z2 / n) * Math.sqrt(p * (1.0 - p) / n + z2 / (4.0 * n * n));
+    }
+
+    public boolean isPrecise(long successCount, long n) {
+        return wilsonHalfWidth(successCount, n, z) <= epsilon;
+    }
+
+    // Rounds of 1, 2, 4, ... fused blocks, evaluated on the pool. The blocks are the ones a
+    // fixed-size run with the same seed would use, so the result is a prefix of that run.
+    public Result estimate(FusedEstimator estimator, StateEvaluator engine, long seed, ParallelEvaluator evaluator) {
+        long start = System.nanoTime();
+        ParallelEvaluator.RangeCounter blocks = estimator.blockCounter(maxN, engine, seed);
+        int totalBlocks = FusedEstimator.blockCount(maxN);
+
+        Result result = new Result();
+        result.worstCaseN = maxN;
+        int done = 0;
+        int roundBlocks = 1;
+        while (done < totalBlocks) {
+            int first = done;
+            int count = Math.min(roundBlocks, totalBlocks - done);
+            result.successCount += evaluator.countSuccesses(count, (from, to) -> blocks.count(first + from, first + to), 1);
+            done += count;
+            result.samplesUsed = Math.min(maxN, done * FusedEstimator.BLOCK_SIZE);
+            if (isPrecise(result.successCount, result.samplesUsed)) {
+                break;
+            }
+            roundBlocks *= 2;
+        }
+
+        result.reliability = (double) result.successCount / result.samplesUsed;
+        result.halfWidth = wilsonHalfWidth(result.successCount, result.samplesUsed, z);
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+}
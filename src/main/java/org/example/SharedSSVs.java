@@ -0,0 +1,95 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// SSVs in a memory-mapped file shared by a generator and a TT agent on the same host
+// (mode=shared): the generator draws the states straight into the mapping, the request carries
+// only the handle (SimulationData.sharedPath, sharedOffset, sharedLength, sharedWidth) and TT
+// evaluates the states in place. Nothing is serialized or copied and the samples are off the
+// heap, so N is not limited by the heap of either agent.
+//
+// Layout: rows of m states of `width` bytes (1, 2 or 4, little-endian) from the offset on, as in
+// SSVStore. A single mapping is limited to 2 GB, so the file is mapped in windows of whole
+// blocks of FusedEstimator.BLOCK_SIZE rows, each window an SSVStore view.
+public class SharedSSVs {
+    private static final long MAX_WINDOW_BYTES = 1L << 30;
+
+    private final int rows;
+    private final int m;
+    private final int width;
+    private final int windowRows;
+    private final SSVStore[] windows;
+
+    private SharedSSVs(FileChannel channel, FileChannel.MapMode mode, long offset, int rows, int m, int width)
+            throws IOException {
+        this.rows = rows;
+        this.m = m;
+        this.width = width;
+        long rowBytes = (long) m * width;
+        int blocks = (int) Math.max(1, MAX_WINDOW_BYTES / (rowBytes * FusedEstimator.BLOCK_SIZE));
+        windowRows = blocks * FusedEstimator.BLOCK_SIZE;
+        windows = new SSVStore[(rows + windowRows - 1) / windowRows];
+        for (int w = 0; w < windows.length; w++) {
+            int size = Math.min(windowRows, rows - w * windowRows);
+            MappedByteBuffer buffer = channel.map(mode, offset + w * windowRows * rowBytes, size * rowBytes);
+            windows[w] = new SSVStore(buffer, size, m, width);
+        }
+    }
+
+    // a new file for rows SSVs of the network, mapped for writing
+    public static SharedSSVs create(Path file, int rows, MFN mfn) throws IOException {
+        int maxW = 0;
+        for (int w : mfn.W) {
+            maxW = Math.max(maxW, w);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new SharedSSVs(channel, FileChannel.MapMode.READ_WRITE, 0, rows, mfn.m, SSVStore.widthFor(maxW));
+        }
+    }
+
+    // the SSVs of a request, mapped read-only
+    public static SharedSSVs open(SimulationData data) throws IOException {
+        long rowBytes = (long) data.m * data.sharedWidth;
+        if (rowBytes <= 0 || data.sharedLength % rowBytes != 0 || data.sharedLength / rowBytes > Integer.MAX_VALUE) {
+            throw new IOException("Invalid shared SSV layout: " + data.sharedLength + " bytes of rows of "
+                    + data.m + " x " + data.sharedWidth + " bytes");
+        }
+        try (FileChannel channel = FileChannel.open(Path.of(data.sharedPath), StandardOpenOption.READ)) {
+            if (channel.size() < data.sharedOffset + data.sharedLength) {
+                throw new IOException("Shared SSV file " + data.sharedPath + " is shorter than the request says");
+            }
+            return new SharedSSVs(channel, FileChannel.MapMode.READ_ONLY, data.sharedOffset,
+                    (int) (data.sharedLength / rowBytes), data.m, data.sharedWidth);
+        }
+    }
+
+    // sets the handle of these SSVs (mapped from offset 0 of file) in the request
+    public void describe(SimulationData data, Path file) {
+        data.sharedPath = file.toAbsolutePath().toString();
+        data.sharedOffset = 0;
+        data.sharedLength = (long) rows * m * width;
+        data.sharedWidth = width;
+    }
+
+    public int size() {
+        return rows;
+    }
+
+    public int getWindowRows() {
+        return windowRows;
+    }
+
+    public int getWindowCount() {
+        return windows.length;
+    }
+
+    // SSVs [w * getWindowRows(), ...) as a store
+    public SSVStore window(int w) {
+        return windows[w];
+    }
+}
@@ -13,6 +13,46 @@ public class SimulationData implements Serializable {
     public double[] rho;
     public String mpsFilePath;
     public double[][] generatedSSVs;
+    // streaming mode: SSVs follow in SSVChunk messages, generatedSSVs stays null
+    public int N;
+    public int chunkSize;
+    // fused mode: TT draws the N SSVs itself from this seed, nothing but the model is sent
+    public long seed;
+    // adaptive fused mode: N is the worst-case limit, TT stops once the estimate is within epsilon
+    public boolean adaptive;
+    public double epsilon;
+    public double delta;
+    // fused mode with a variance-reduction strategy (SamplingStrategy.NAMES), null for plain counting
+    public String sampling;
+    public double tilt;
+    // coordinator mode: TT counts only the fused blocks [firstBlock, blockEnd) of the N SSVs
+    public int firstBlock;
+    public int blockEnd;
+    // curve mode: shortest transmission times for each of these demands instead of one (d, T) answer,
+    // deadlines are only where the curve is printed, the reply holds the whole distribution
+    public double[] demands;
+    public double[] deadlines;
+    // sensitivity mode: link importance report (SensitivityEstimator), parameters changed by this step
+    public double sensitivityStep;
+    // fused mode: TT keeps the SSVs between the runs of the sender and redraws only the links whose
+    // parameters changed since its last request (IncrementalEstimator)
+    public boolean incremental;
+    // shared mode: the SSVs are in a memory-mapped file on TT's host (SharedSSVs), not in the message:
+    // file, byte offset and length of the rows, bytes per state
+    public String sharedPath;
+    public long sharedOffset;
+    public long sharedLength;
+    public int sharedWidth;
+    // MPs sent with the request (PathIndex layout) instead of being read from mpsFilePath on TT's host,
+    // null when TT reads the file; the binary codec (SimulationDataCodec) delta-encodes them
+    public int[] pathOffsets;
+    public int[] pathLinks;
+
+    public static final String FUSED_REQUEST = "ssv-fused";
+    public static final String SHARD_REQUEST = "ssv-shard";
+    public static final String CURVE_REQUEST = "ssv-curve";
+    public static final String SENSITIVITY_REQUEST = "ssv-sensitivity";
+    public static final String SHARED_REQUEST = "ssv-shared";
 
     public SimulationData(int m, int[] W, double[] C, int[] L, double[] R, double[] rho,
                           String mpsFilePath, double[][] generatedSSVs) {
@@ -24,5 +64,31 @@ public class SimulationData implements Serializable {
         this.rho = rho;
         this.mpsFilePath = mpsFilePath;
         this.generatedSSVs = generatedSSVs;
+        this.N = generatedSSVs != null ? generatedSSVs.length : 0;
+    }
+
+    public SimulationData(int m, int[] W, double[] C, int[] L, double[] R, double[] rho,
+                          String mpsFilePath, int N, int chunkSize) {
+        this(m, W, C, L, R, rho, mpsFilePath, null);
+        this.N = N;
+        this.chunkSize = chunkSize;
+    }
+
+    // sends the paths with the request, so TT does not need the MP file
+    public void inlinePaths(PathIndex paths) {
+        int count = paths.size();
+        pathOffsets = new int[count + 1];
+        pathLinks = new int[paths.linkCount()];
+        for (int p = 0; p < count; p++) {
+            pathOffsets[p] = paths.start(p);
+        }
+        pathOffsets[count] = pathLinks.length;
+        for (int j = 0; j < pathLinks.length; j++) {
+            pathLinks[j] = paths.link(j);
+        }
+    }
+
+    public boolean hasInlinePaths() {
+        return pathLinks != null;
     }
-}
\ No newline at end of file
+}
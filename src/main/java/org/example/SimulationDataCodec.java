@@ -0,0 +1,410 @@
+package org.example;
+
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.UnreadableException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Binary form of SimulationData, used instead of Java serialization (setContentObject).
+// Arrays are written in bulk through little-endian buffer views, the SSVs as one block of
+// N * m doubles without a header per row, and no class descriptors at all.
+//
+//   int magic 'SDAT', byte version, byte flags (FLAG_DEFLATE), [int body length if deflated], body
+//   body: int m, W[m], C[m], L[m], R[m], rho[m], string mpsFilePath, int N, int chunkSize,
+//         long seed, byte adaptive, double epsilon, double delta, string sampling, double tilt,
+//         int firstBlock, int blockEnd, double[] demands, double[] deadlines,
+//         double sensitivityStep (since version 2), byte incremental (since 3),
+//         string sharedPath, long sharedOffset, long sharedLength, int sharedWidth (since 4), paths,
+//         int rows (-1 without SSVs), double ssvs[rows * m]
+//   string: int byte length (-1 for null) + UTF-8; double[]: int length (-1 for null) + values
+//   paths (inline MPs, SimulationData.pathLinks): int pathCount (-1 when not inlined), then per
+//         path a varint length and its links as zigzag varint differences to the previous link
+//
+// The optional compression is Deflater.BEST_SPEED of the body. Messages of versions 1 to 3 are
+// still read; readers reject newer versions.
+public class SimulationDataCodec {
+    public static final int MAGIC = 0x54414453; // "SDAT" read as a little-endian int
+    public static final int VERSION = 4;
+    public static final int FLAG_DEFLATE = 1;
+    private static final int HEADER_BYTES = 6;
+    // ACL encoding of messages whose content is in this format
+    public static final String ENCODING = "simulation-data-v" + VERSION;
+
+    private SimulationDataCodec() {
+    }
+
+    public static byte[] encode(SimulationData data, boolean compress) {
+        // header in front of the body, so an uncompressed message needs no second copy
+        Out out = new Out(HEADER_BYTES + maxBodySize(data));
+        out.putInt(MAGIC);
+        out.putByte(VERSION);
+        out.putByte(0);
+        out.putInt(data.m);
+        out.putInts(data.W);
+        out.putDoubles(data.C);
+        out.putInts(data.L);
+        out.putDoubles(data.R);
+        out.putDoubles(data.rho);
+        out.putString(data.mpsFilePath);
+        out.putInt(data.N);
+        out.putInt(data.chunkSize);
+        out.putLong(data.seed);
+        out.putByte(data.adaptive ? 1 : 0);
+        out.putDouble(data.epsilon);
+        out.putDouble(data.delta);
+        out.putString(data.sampling);
+        out.putDouble(data.tilt);
+        out.putInt(data.firstBlock);
+        out.putInt(data.blockEnd);
+        out.putDoubleArray(data.demands);
+        out.putDoubleArray(data.deadlines);
+        out.putDouble(data.sensitivityStep);
+        out.putByte(data.incremental ? 1 : 0);
+        out.putString(data.sharedPath);
+        out.putLong(data.sharedOffset);
+        out.putLong(data.sharedLength);
+        out.putInt(data.sharedWidth);
+        writePaths(out, data);
+        double[][] ssvs = data.generatedSSVs;
+        out.putInt(ssvs != null ? ssvs.length : -1);
+        if (ssvs != null) {
+            out.putRows(ssvs, data.m);
+        }
+
+        ByteBuffer buffer = out.buffer;
+        if (!compress) {
+            return buffer.position() == buffer.capacity()
+                    ? buffer.array() : Arrays.copyOf(buffer.array(), buffer.position());
+        }
+        ByteBuffer body = buffer.flip().position(HEADER_BYTES).slice();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(body);
+            deflater.finish();
+            ByteBuffer result = ByteBuffer.allocate(10 + body.remaining() + body.remaining() / 1000 + 64)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            result.putInt(MAGIC).put((byte) VERSION).put((byte) FLAG_DEFLATE).putInt(body.remaining());
+            while (!deflater.finished()) {
+                if (!result.hasRemaining()) {
+                    result = grow(result, result.capacity() * 2);
+                }
+                deflater.deflate(result);
+            }
+            byte[] bytes = new byte[result.position()];
+            result.flip().get(bytes);
+            return bytes;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static boolean isEncoded(byte[] bytes) {
+        return bytes != null && bytes.length >= HEADER_BYTES
+                && ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).getInt(0) == MAGIC;
+    }
+
+    public static SimulationData decode(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        if (bytes.length < HEADER_BYTES || in.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a binary SimulationData message");
+        }
+        int version = in.get();
+        if (version < 1 || version > VERSION) {
+            throw new IllegalArgumentException("Unsupported SimulationData version " + version);
+        }
+        int flags = in.get();
+        if ((flags & FLAG_DEFLATE) != 0) {
+            in = inflate(in);
+        }
+
+        int m = in.getInt();
+        int[] W = getInts(in, m);
+        double[] C = getDoubles(in, m);
+        int[] L = getInts(in, m);
+        double[] R = getDoubles(in, m);
+        double[] rho = getDoubles(in, m);
+        String mpsFilePath = getString(in);
+        SimulationData data = new SimulationData(m, W, C, L, R, rho, mpsFilePath, null);
+        data.N = in.getInt();
+        data.chunkSize = in.getInt();
+        data.seed = in.getLong();
+        data.adaptive = in.get() != 0;
+        data.epsilon = in.getDouble();
+        data.delta = in.getDouble();
+        data.sampling = getString(in);
+        data.tilt = in.getDouble();
+        data.firstBlock = in.getInt();
+        data.blockEnd = in.getInt();
+        data.demands = getDoubleArray(in);
+        data.deadlines = getDoubleArray(in);
+        if (version >= 2) {
+            data.sensitivityStep = in.getDouble();
+        }
+        if (version >= 3) {
+            data.incremental = in.get() != 0;
+        }
+        if (version >= 4) {
+            data.sharedPath = getString(in);
+            data.sharedOffset = in.getLong();
+            data.sharedLength = in.getLong();
+            data.sharedWidth = in.getInt();
+        }
+        readPaths(in, data);
+        int rows = in.getInt();
+        if (rows >= 0) {
+            double[][] ssvs = new double[rows][];
+            for (int n = 0; n < rows; n++) {
+                ssvs[n] = getDoubles(in, m);
+            }
+            data.generatedSSVs = ssvs;
+        }
+        return data;
+    }
+
+    // sets the content of a message to the encoded data
+    public static void write(ACLMessage msg, SimulationData data, boolean compress) {
+        msg.setByteSequenceContent(encode(data, compress));
+        msg.setEncoding(ENCODING);
+    }
+
+    // content of a request in either form: this codec or Java serialization (older generators);
+    // a damaged binary message throws IllegalArgumentException
+    public static SimulationData read(ACLMessage msg) throws UnreadableException {
+        byte[] bytes = msg.hasByteSequenceContent() ? msg.getByteSequenceContent() : null;
+        if (isEncoded(bytes)) {
+            try {
+                return decode(bytes);
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+                throw new IllegalArgumentException("Truncated SimulationData message", e);
+            }
+        }
+        return (SimulationData) msg.getContentObject();
+    }
+
+    private static void writePaths(Out out, SimulationData data) {
+        if (data.pathLinks == null) {
+            out.putInt(-1);
+            return;
+        }
+        int pathCount = data.pathOffsets.length - 1;
+        out.putInt(pathCount);
+        for (int p = 0; p < pathCount; p++) {
+            int start = data.pathOffsets[p];
+            int end = data.pathOffsets[p + 1];
+            out.putVarint(end - start);
+            int previous = 0;
+            for (int j = start; j < end; j++) {
+                int delta = data.pathLinks[j] - previous;
+                out.putVarint((delta << 1) ^ (delta >> 31)); // zigzag, small negative steps stay short
+                previous = data.pathLinks[j];
+            }
+        }
+    }
+
+    private static void readPaths(ByteBuffer in, SimulationData data) {
+        int pathCount = in.getInt();
+        if (pathCount < 0) {
+            return;
+        }
+        int[] offsets = new int[pathCount + 1];
+        int[] links = new int[Math.max(16, pathCount * 4)];
+        int pos = 0;
+        for (int p = 0; p < pathCount; p++) {
+            offsets[p] = pos;
+            int length = getVarint(in);
+            if (pos + length > links.length) {
+                links = Arrays.copyOf(links, Math.max(pos + length, links.length * 2));
+            }
+            int previous = 0;
+            for (int j = 0; j < length; j++) {
+                int zigzag = getVarint(in);
+                previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                links[pos++] = previous;
+            }
+        }
+        offsets[pathCount] = pos;
+        data.pathOffsets = offsets;
+        data.pathLinks = Arrays.copyOf(links, pos);
+    }
+
+    // exact except for the paths, whose varints are counted at their longest
+    private static int maxBodySize(SimulationData data) {
+        long size = 4 + 32L * data.m + 4 + 4 + 8 + 1 + 8 + 8 + 8 + 4 + 4 + 8 + 1 + 8 + 8 + 4;
+        size += stringSize(data.mpsFilePath) + stringSize(data.sampling) + stringSize(data.sharedPath);
+        size += 4 + (data.demands != null ? 8L * data.demands.length : 0);
+        size += 4 + (data.deadlines != null ? 8L * data.deadlines.length : 0);
+        size += 4 + (data.pathLinks != null ? 5L * (data.pathOffsets.length + data.pathLinks.length) : 0);
+        size += 4 + (data.generatedSSVs != null ? 8L * data.generatedSSVs.length * data.m : 0);
+        if (size > Integer.MAX_VALUE - 16) {
+            throw new IllegalArgumentException("SimulationData too large for one message");
+        }
+        return (int) size;
+    }
+
+    private static int stringSize(String value) {
+        return 4 + (value != null ? value.getBytes(StandardCharsets.UTF_8).length : 0);
+    }
+
+    private static ByteBuffer inflate(ByteBuffer in) {
+        int length = in.getInt();
+        ByteBuffer body = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer extra = ByteBuffer.allocate(1); // catches a body longer than the header says
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(in);
+            // up to the end of the deflate stream, so a message cut in its trailer is rejected too
+            while (!inflater.finished()) {
+                if (inflater.inflate(body.hasRemaining() ? body : extra) == 0
+                        && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated compressed SimulationData");
+                }
+                if (extra.position() > 0) {
+                    throw new IllegalArgumentException("Compressed SimulationData longer than its header says");
+                }
+            }
+            if (body.hasRemaining()) {
+                throw new IllegalArgumentException("Compressed SimulationData shorter than its header says");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt compressed SimulationData", e);
+        } finally {
+            inflater.end();
+        }
+        return body.flip();
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int capacity) {
+        ByteBuffer bigger = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        bigger.put(buffer.flip());
+        return bigger;
+    }
+
+    private static int[] getInts(ByteBuffer in, int n) {
+        int[] values = new int[n];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + 4 * n);
+        return values;
+    }
+
+    private static double[] getDoubles(ByteBuffer in, int n) {
+        double[] values = new double[n];
+        in.asDoubleBuffer().get(values);
+        in.position(in.position() + 8 * n);
+        return values;
+    }
+
+    private static double[] getDoubleArray(ByteBuffer in) {
+        int n = in.getInt();
+        return n < 0 ? null : getDoubles(in, n);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int n = in.getInt();
+        if (n < 0) return null;
+        String value = new String(in.array(), in.arrayOffset() + in.position(), n, StandardCharsets.UTF_8);
+        in.position(in.position() + n);
+        return value;
+    }
+
+    private static int getVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    // growable little-endian output buffer
+    private static class Out {
+        ByteBuffer buffer;
+
+        Out(int capacity) {
+            buffer = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        void ensure(long bytes) {
+            if (buffer.remaining() < bytes) {
+                long needed = buffer.position() + bytes;
+                if (needed > Integer.MAX_VALUE - 16) {
+                    throw new IllegalArgumentException("SimulationData too large for one message");
+                }
+                buffer = grow(buffer, (int) Math.min(Integer.MAX_VALUE - 16, Math.max(needed, 2L * buffer.capacity())));
+            }
+        }
+
+        void putByte(int v) {
+            ensure(1);
+            buffer.put((byte) v);
+        }
+
+        void putInt(int v) {
+            ensure(4);
+            buffer.putInt(v);
+        }
+
+        void putLong(long v) {
+            ensure(8);
+            buffer.putLong(v);
+        }
+
+        void putDouble(double v) {
+            ensure(8);
+            buffer.putDouble(v);
+        }
+
+        void putInts(int[] values) {
+            ensure(4L * values.length);
+            buffer.asIntBuffer().put(values);
+            buffer.position(buffer.position() + 4 * values.length);
+        }
+
+        void putDoubles(double[] values) {
+            ensure(8L * values.length);
+            buffer.asDoubleBuffer().put(values);
+            buffer.position(buffer.position() + 8 * values.length);
+        }
+
+        void putDoubleArray(double[] values) {
+            putInt(values != null ? values.length : -1);
+            if (values != null) putDoubles(values);
+        }
+
+        // m values per row, one block for all rows
+        void putRows(double[][] rows, int m) {
+            ensure(8L * rows.length * m);
+            java.nio.DoubleBuffer view = buffer.asDoubleBuffer();
+            for (double[] row : rows) {
+                view.put(row, 0, m);
+            }
+            buffer.position(buffer.position() + 8 * rows.length * m);
+        }
+
+        void putString(String value) {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        void putVarint(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                buffer.put((byte) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            buffer.put((byte) v);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.example;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+// JDK Flight Recorder events of the agents, recorded e.g. with
+//   java -XX:StartFlightRecording=filename=run.jfr,settings=profile ... jade.Boot ...
+// and shown by `jfr print --events org.example.* run.jfr` or in JDK Mission Control.
+// When no recording is running the events cost one enabled check.
+public final class SimulationEvents {
+    private SimulationEvents() {
+    }
+
+    @Name("org.example.Phase")
+    @Label("Simulation Phase")
+    @Category({"Agentic", "Simulation"})
+    @Description("One phase of a run: model, sampling, serialization, message, export, evaluation or queue wait")
+    public static class PhaseEvent extends Event {
+        @Label("Agent")
+        public String agent;
+
+        @Label("Run")
+        public String run;
+
+        @Label("Phase")
+        public String phase;
+
+        @Label("Time")
+        @Timespan(Timespan.NANOSECONDS)
+        public long time;
+
+        @Label("Samples")
+        public long samples;
+
+        @Label("Samples per Second")
+        public double samplesPerSecond;
+
+        @Label("Message Size")
+        @DataAmount
+        public long bytes;
+
+        @Label("Allocated")
+        @Description("Heap allocated by the thread(s) of the phase")
+        @DataAmount
+        public long allocated;
+    }
+
+    @Name("org.example.Run")
+    @Label("Simulation Run")
+    @Category({"Agentic", "Simulation"})
+    @Description("A whole request as seen by one agent")
+    public static class RunEvent extends Event {
+        @Label("Agent")
+        public String agent;
+
+        @Label("Run")
+        public String run;
+
+        @Label("Kind")
+        public String kind;
+
+        @Label("Samples")
+        public long samples;
+
+        @Label("Succeeded")
+        public boolean succeeded;
+
+        @Label("Time")
+        @Timespan(Timespan.NANOSECONDS)
+        public long time;
+    }
+}
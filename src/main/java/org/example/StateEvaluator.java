@@ -0,0 +1,32 @@
+package org.example;
+
+import java.util.List;
+
+// Counts SSVs of a store that meet the deadline of one (d, T) request.
+// Implemented by the evaluation engines TT can choose from with engine=<name>.
+public interface StateEvaluator {
+    List<String> ENGINES = List.of("plan", "bitslice", "simd");
+
+    int countSuccesses(SSVStore store, int from, int to);
+
+    // "plan" checks one SSV at a time, "bitslice" 64 SSVs per machine word, "simd" one vector
+    // register of SSVs per instruction; without the Vector API "simd" falls back to the plan
+    static StateEvaluator forEngine(String engine, EvaluationPlan plan, int m) {
+        switch (engine) {
+            case "plan":
+                return plan;
+            case "bitslice":
+                return new BitSlicedEvaluator(plan, m);
+            case "simd":
+                return vectorApiAvailable() ? new VectorEvaluator(plan, m) : plan;
+            default:
+                throw new IllegalArgumentException("Unknown evaluation engine: " + engine);
+        }
+    }
+
+    // jdk.incubator.vector is in the boot layer (java --add-modules jdk.incubator.vector) and
+    // the CPU has vector registers for at least 4 ints; VectorEvaluator is only loaded then
+    static boolean vectorApiAvailable() {
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent() && VectorEvaluator.lanes() >= 4;
+    }
+}
@@ -1,26 +1,46 @@
 package org.example;
 
 import jade.core.Agent;
+import jade.core.behaviours.Behaviour;
 import jade.core.behaviours.CyclicBehaviour;
 import jade.domain.DFService;
 import jade.domain.FIPAAgentManagement.DFAgentDescription;
+import jade.domain.FIPAAgentManagement.Property;
 import jade.domain.FIPAAgentManagement.ServiceDescription;
 import jade.domain.FIPAException;
 import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
 import jade.lang.acl.UnreadableException;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
 
 public class TT extends Agent {
     private double d;
     private double T;
+    private ParallelEvaluator evaluator;
+    private SSVExporter.Format exportFormat; // export of received SSVs, null when off (the default)
+    private String exportFile;
+    private int exportEvery;  // export only every k-th SSV
+    private int exportQueue;  // chunks the export may lag behind before new ones are dropped
+    private String engine;   // evaluation engine for SSV stores, see StateEvaluator.forEngine
+    private ResultCache cache; // cache=<dir>: answers of seeded requests are kept and reused, off by default
+    private AgentMetrics metrics; // phase times of the requests, JMX bean org.example:type=Agent,name=<agent>
 
     @Override
     protected void setup() {
         Object[] args = getArguments();
-        if (args != null && args.length == 2) {
+        int workers;
+        if (args != null && args.length >= 2) {
             try {
                 d = Double.parseDouble(args[0].toString());
                 T = Double.parseDouble(args[1].toString());
@@ -29,6 +49,45 @@ public class TT extends Agent {
                 doDelete();
                 return;
             }
+            try {
+                AgentArgs options = new AgentArgs(args, 2);
+                workers = options.getInt("workers", Runtime.getRuntime().availableProcessors());
+                // csv=true is the old switch for export=csv
+                String export = options.getString("export", options.getBoolean("csv", false) ? "csv" : "none");
+                exportFormat = "none".equals(export) ? null : SSVExporter.Format.valueOf(export.toUpperCase(Locale.ROOT));
+                exportFile = options.getString("export-file", exportFormat != null ? exportFormat.defaultFile : null);
+                exportEvery = options.getInt("export-every", 1);
+                exportQueue = options.getInt("export-queue", SSVExporter.DEFAULT_QUEUE_CAPACITY);
+                engine = options.getString("engine", "plan");
+                models = new ModelCache(options.getInt("models-mb", 256) * 1_000_000L);
+                if (options.has("cache")) {
+                    try {
+                        cache = new ResultCache(Path.of(options.getString("cache", null)),
+                                options.getInt("cache-entries", 256), options.getInt("cache-mb", 64) * 1_000_000L);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+                if (workers <= 0) {
+                    System.err.println("TT Agent: number of workers must be positive.");
+                    doDelete();
+                    return;
+                }
+                if (exportEvery <= 0 || exportQueue <= 0) {
+                    System.err.println("TT Agent: export-every and export-queue must be positive.");
+                    doDelete();
+                    return;
+                }
+                if (!StateEvaluator.ENGINES.contains(engine)) {
+                    System.err.println("TT Agent: unknown engine " + engine + ", expected one of " + StateEvaluator.ENGINES);
+                    doDelete();
+                    return;
+                }
+            } catch (IllegalArgumentException e) {
+                System.err.println("TT Agent: invalid option: " + e.getMessage());
+                doDelete();
+                return;
+            }
         } else {
             System.err.println("TT Agent: lack of arguments (d, T).");
             doDelete();
@@ -37,12 +96,26 @@ public class TT extends Agent {
 
         System.out.println("Hallo! Transmission times computing-agent " + getAID().getName() + " is ready.");
         System.out.println("The aim is to estimate the probability of sending " + d + " units of flow within time " + T);
+        System.out.println("SSVs are evaluated by " + workers + " worker threads with the " + engine + " engine");
+        if (engine.equals("simd") && !StateEvaluator.vectorApiAvailable()) {
+            System.out.println("The Vector API is not available (java --add-modules jdk.incubator.vector), simd uses the plan engine");
+        }
+        if (exportFormat != null) {
+            System.out.println("Every " + (exportEvery == 1 ? "" : exportEvery + "th ") + "received SSV is exported to " + exportFile);
+        }
+
+        evaluator = new ParallelEvaluator(workers);
+        metrics = new AgentMetrics(getLocalName());
+        metrics.register();
 
         DFAgentDescription dfd = new DFAgentDescription();
         dfd.setName(getAID());
         ServiceDescription sd = new ServiceDescription();
         sd.setType("transmission-time-estimation");
         sd.setName("JADE-reliability");
+        // the query this agent answers, generators use it for their result cache keys
+        sd.addProperties(new Property("d", String.valueOf(d)));
+        sd.addProperties(new Property("T", String.valueOf(T)));
         dfd.addServices(sd);
         try {
             DFService.register(this, dfd);
@@ -50,11 +123,31 @@ public class TT extends Agent {
             fe.printStackTrace();
         }
 
+        // evaluation runs on the worker threads, its results come back to the agent thread through O2A
+        setEnabledO2ACommunication(true, 0);
+        Behaviour completions = new CompletedEvaluationsBehaviour();
+        setO2AManager(completions);
+        addBehaviour(completions);
+
         addBehaviour(new CalculateReliabilityBehaviour());
     }
 
     @Override
     protected void takeDown() {
+        if (evaluator != null) {
+            evaluator.close();
+        }
+        if (cache != null) {
+            System.out.println("TT Agent " + getLocalName() + " " + cache.stats());
+        }
+        if (models != null) {
+            System.out.println("TT Agent " + getLocalName() + " " + models.stats());
+        }
+        if (metrics != null) {
+            System.out.println("TT Agent " + getLocalName() + ": " + metrics.getRunsSucceeded() + " runs succeeded, "
+                    + metrics.getRunsFailed() + " failed");
+            metrics.unregister();
+        }
         try {
             DFService.deregister(this);
         } catch (FIPAException fe) {
@@ -62,76 +155,563 @@ public class TT extends Agent {
         }
     }
 
+    // state of one SSV stream, kept between its chunk messages
+    private static class StreamState {
+        MFN mfn;
+        EvaluationPlan plan;
+        StateEvaluator engine;
+        SSVExporter exporter;
+        RunMetrics run;
+        long successCount = 0;
+        long sampleCount = 0;
+        int pendingChunks = 0;  // chunks still being evaluated by the workers
+        ACLMessage endMessage;  // set when the end of the stream has arrived
+    }
+
+    private final Map<String, StreamState> streams = new HashMap<>();
+
+    // cache keys of requests being computed, their answer is stored when it is sent
+    private final Map<ACLMessage, String> cacheKeys = new IdentityHashMap<>();
+
+    // networks of recent requests, a topology is loaded and compiled once, not per request
+    private ModelCache models;
+
+    // samples of the last incremental run of each generator (by sender name), for a few generators
+    private static final int INCREMENTAL_SESSIONS = 4;
+    private final Map<String, IncrementalEstimator> incrementalRuns = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, IncrementalEstimator> eldest) {
+            return size() > INCREMENTAL_SESSIONS;
+        }
+    };
+
     private class CalculateReliabilityBehaviour extends CyclicBehaviour {
         @Override
         public void action() {
-            ACLMessage msg = receive();
-            if (msg != null && msg.getPerformative() == ACLMessage.REQUEST) {
+            ACLMessage msg = receive(MessageTemplate.MatchPerformative(ACLMessage.REQUEST));
+            if (msg == null) {
+                block();
+                return;
+            }
+            String ontology = msg.getOntology();
+            if (SSVChunk.STREAM_CHUNK.equals(ontology) || SSVChunk.STREAM_END.equals(ontology)) {
                 try {
-                    SimulationData data = (SimulationData) msg.getContentObject();
-
-                    saveSSVsToCSV(data.generatedSSVs, "SSVs.csv");
-
-                    MFN mfn = new MFN(data.m, data.W, data.C, data.L, data.R, data.rho);
-                    mfn.getMPs(data.mpsFilePath);
-
-                    int successCount = 0;
-                    int N = data.generatedSSVs.length;
-
-                    // Iterating on each vector ( Monte Carlo)
-                    for (double[] ssv : data.generatedSSVs) {
-                        // for each state we look for shortest path
-                        double minTime = Double.POSITIVE_INFINITY;
-
-                        // checking each minimal path
-                        for (int[] path : mfn.MPs) {
-                            // calculating transmision time for path in this state
-                            double time = mfn.calculateTransmissionTime(path, d, ssv);
-                            if (time < minTime) {
-                                minTime = time;
-                            }
-                        }
-
-                        // if shortest time is smaller than T -> success
-                        if (minTime <= T) {
-                            successCount++;
-                        }
+                    if (SSVChunk.STREAM_CHUNK.equals(ontology)) {
+                        processChunk(msg);
+                    } else {
+                        endStream(msg);
                     }
+                } catch (UnreadableException | RuntimeException e) {
+                    e.printStackTrace();
+                    StreamState state = streams.get(msg.getConversationId());
+                    sendFailure(msg, "unreadable stream message: " + e.getMessage(), state != null ? state.run : null);
+                }
+                return;
+            }
+
+            // every other request is a run of its own
+            RunMetrics run = metrics.newRun(ontology != null ? ontology : "ssvs");
+            run.received(msg);
+            try {
+                SimulationData data = readData(msg, run);
+                if (answeredFromCache(msg, data, run)) {
+                    return;
+                }
+                if (SSVChunk.STREAM_START.equals(ontology)) {
+                    startStream(msg, data, run);
+                } else if (SimulationData.FUSED_REQUEST.equals(ontology)) {
+                    processFusedRequest(msg, data, run);
+                } else if (SimulationData.SHARD_REQUEST.equals(ontology)) {
+                    processShardRequest(msg, data, run);
+                } else if (SimulationData.CURVE_REQUEST.equals(ontology)) {
+                    processCurveRequest(msg, data, run);
+                } else if (SimulationData.SENSITIVITY_REQUEST.equals(ontology)) {
+                    processSensitivityRequest(msg, data, run);
+                } else if (SimulationData.SHARED_REQUEST.equals(ontology)) {
+                    processSharedRequest(msg, data, run);
+                } else {
+                    processWholeRequest(msg, data, run);
+                }
+            } catch (UnreadableException | RuntimeException e) {
+                e.printStackTrace();
+                sendFailure(msg, e.toString(), run);
+            }
+        }
+
+        private <C> C readContent(ACLMessage msg, RunMetrics run) throws UnreadableException {
+            RunMetrics.Timer timer = run.start(RunMetrics.Phase.SERIALIZATION);
+            @SuppressWarnings("unchecked")
+            C content = (C) msg.getContentObject();
+            timer.stop(0, RunMetrics.contentSize(msg));
+            return content;
+        }
+
+        // requests in the binary codec or, from older generators, Java serialization
+        private SimulationData readData(ACLMessage msg, RunMetrics run) throws UnreadableException {
+            RunMetrics.Timer timer = run.start(RunMetrics.Phase.SERIALIZATION);
+            SimulationData data = SimulationDataCodec.read(msg);
+            timer.stop(0, RunMetrics.contentSize(msg));
+            return data;
+        }
+
+        private ModelCache.Model model(SimulationData data, RunMetrics run) {
+            RunMetrics.Timer timer = run.start(RunMetrics.Phase.MODEL);
+            ModelCache.Model model = models.get(data);
+            timer.stop();
+            return model;
+        }
+
+        private void startStream(ACLMessage msg, SimulationData data, RunMetrics run) {
+            StreamState state = new StreamState();
+            ModelCache.Model model = model(data, run);
+            state.mfn = model.mfn;
+            state.plan = model.plan(d, T);
+            state.engine = model.engine(engine, d, T);
+            state.exporter = openExporter(data.C, run);
+            state.run = run;
+            streams.put(msg.getConversationId(), state);
+            System.out.println("Receiving " + data.N + " SSVs in chunks of " + data.chunkSize);
+        }
+
+        private void processChunk(ACLMessage msg) throws UnreadableException {
+            StreamState state = streams.get(msg.getConversationId());
+            if (state == null) {
+                System.err.println("TT Agent: chunk for unknown stream " + msg.getConversationId());
+                return;
+            }
+            state.run.received(msg);
+            SSVChunk chunk = readContent(msg, state.run);
+
+            if (state.exporter != null) {
+                if (chunk.states != null) {
+                    state.exporter.submit(chunk.states);
+                } else {
+                    state.exporter.submit(chunk.ssvs);
+                }
+            }
+
+            EvaluationPlan plan = state.plan;
+            StateEvaluator stateEngine = state.engine;
+            ParallelEvaluator.RangeCounter counter = chunk.states != null
+                    ? (from, to) -> stateEngine.countSuccesses(chunk.states, from, to)
+                    : (from, to) -> plan.countSuccesses(chunk.ssvs, from, to);
+
+            state.pendingChunks++;
+            evaluate(msg, state.run, chunk.size(), chunk.size(), counter, successCount -> {
+                if (streams.get(msg.getConversationId()) != state) {
+                    return; // the stream failed meanwhile and its FAILURE was sent
+                }
+                state.successCount += successCount;
+                state.sampleCount += chunk.size();
+                state.pendingChunks--;
+
+                // the chunk is confirmed only after it has been evaluated, which keeps the generator's window honest
+                ACLMessage confirm = msg.createReply();
+                confirm.setPerformative(ACLMessage.CONFIRM);
+                confirm.setContent(String.valueOf(chunk.index));
+                send(confirm);
+
+                if (state.endMessage != null && state.pendingChunks == 0) {
+                    finishStream(msg.getConversationId(), state);
+                }
+            });
+        }
+
+        private void endStream(ACLMessage msg) {
+            StreamState state = streams.get(msg.getConversationId());
+            if (state == null) {
+                System.err.println("TT Agent: end of unknown stream " + msg.getConversationId());
+                return;
+            }
+            state.endMessage = msg;
+            state.run.received(msg);
+            if (state.pendingChunks == 0) {
+                finishStream(msg.getConversationId(), state);
+            }
+        }
+
+        private void finishStream(String conversationId, StreamState state) {
+            streams.remove(conversationId);
+            if (state.exporter != null) {
+                state.exporter.close(); // the writer reports when the file is complete
+            }
+            state.run.setSamples(state.sampleCount);
+            sendReliability(state.endMessage, (double) state.successCount / state.sampleCount, state.run);
+        }
+
+        // all SSVs in a single message
+        private void processWholeRequest(ACLMessage msg, SimulationData data, RunMetrics run) {
+            SSVExporter exporter = openExporter(data.C, run);
+            if (exporter != null) {
+                exporter.submit(data.generatedSSVs);
+                exporter.close();
+            }
+
+            EvaluationPlan plan = model(data, run).plan(d, T);
+            int N = data.generatedSSVs.length;
+            run.setSamples(N);
+            evaluate(msg, run, N, N, (from, to) -> plan.countSuccesses(data.generatedSSVs, from, to),
+                    successCount -> sendReliability(msg, (double) successCount / N, run));
+        }
+
+        // SSVs in a file of this host mapped read-only (SharedSSVs), evaluated in place block by block
+        private void processSharedRequest(ACLMessage msg, SimulationData data, RunMetrics run) {
+            SharedSSVs shared;
+            try {
+                shared = SharedSSVs.open(data);
+            } catch (IOException e) {
+                System.err.println("TT Agent: " + e.getMessage());
+                sendFailure(msg, "cannot map " + data.sharedPath + " on " + getAID().getName() + ": " + e.getMessage(), run);
+                return;
+            }
+            StateEvaluator stateEngine = model(data, run).engine(engine, d, T);
+            SSVExporter exporter = openExporter(data.C, run);
+            if (exporter != null) {
+                for (int w = 0; w < shared.getWindowCount(); w++) {
+                    exporter.submit(shared.window(w));
+                }
+                exporter.close();
+            }
+
+            int N = shared.size();
+            System.out.println("Evaluating " + N + " SSVs in place from " + data.sharedPath);
+            run.setSamples(N);
+            int blocksPerWindow = shared.getWindowRows() / FusedEstimator.BLOCK_SIZE;
+            evaluate(msg, run, N, FusedEstimator.blockCount(N), (from, to) -> {
+                long successCount = 0;
+                for (int b = from; b < to; b++) {
+                    SSVStore window = shared.window(b / blocksPerWindow);
+                    int first = (b % blocksPerWindow) * FusedEstimator.BLOCK_SIZE;
+                    successCount += stateEngine.countSuccesses(window, first,
+                            Math.min(first + FusedEstimator.BLOCK_SIZE, window.size()));
+                }
+                return successCount;
+            }, 1, successCount -> sendReliability(msg, (double) successCount / N, run));
+        }
+
+        // no SSVs are sent, they are drawn and evaluated one at a time from the seed in the request
+        private void processFusedRequest(ACLMessage msg, SimulationData data, RunMetrics run) {
+            ModelCache.Model model = model(data, run);
+
+            if (data.incremental) {
+                processIncrementalRequest(msg, data, model, run);
+                return;
+            }
+            int N = data.N;
+            System.out.println("Drawing and evaluating " + N + " SSVs in fused mode");
+            FusedEstimator estimator = model.fused;
+            StateEvaluator fusedEngine = model.engine(engine, d, T);
+            if (data.adaptive) {
+                processAdaptiveRequest(msg, data, estimator, fusedEngine, run);
+                return;
+            }
+            run.setSamples(N);
+            if (data.sampling != null) {
+                processWeightedRequest(msg, data, model, run);
+                return;
+            }
+            evaluate(msg, run, N, FusedEstimator.blockCount(N), estimator.blockCounter(N, fusedEngine, data.seed), 1,
+                    successCount -> sendReliability(msg, (double) successCount / N, run));
+        }
+
+        // Fused run on the samples kept from the sender's previous request: only links whose W, R or
+        // rho changed are redrawn and only SSVs that an edited link can change are checked again.
+        // The samples are unusable while they are updated, a request in the meantime starts anew.
+        private void processIncrementalRequest(ACLMessage msg, SimulationData data, ModelCache.Model model, RunMetrics run) {
+            String digest;
+            try {
+                digest = ResultCache.pathsDigest(data);
+            } catch (IOException e) {
+                e.printStackTrace();
+                digest = null; // the samples cannot be matched to the paths, they are drawn anew
+            }
+            String sender = msg.getSender().getName();
+            IncrementalEstimator incremental = incrementalRuns.get(sender);
+            if (incremental == null || !incremental.matches(data, digest)) {
+                incremental = new IncrementalEstimator(data.N, data.seed, d, T, digest);
+                incrementalRuns.put(sender, incremental);
+            }
+            IncrementalEstimator samples = incremental;
+
+            int N = data.N;
+            run.setSamples(N);
+            ParallelEvaluator.RangeCounter counter = samples.update(model);
+            System.out.println(samples.wasFull() ? "Drawing and evaluating " + N + " SSVs in incremental mode"
+                    : "Redrawing links " + Arrays.toString(samples.getResampledLinks()) + " of " + N + " kept SSVs");
+            evaluate(msg, run, N, FusedEstimator.blockCount(N), counter, 1, successCount -> {
+                samples.done(model, successCount);
+                System.out.println("Incremental run re-evaluated " + samples.getReevaluated() + " of " + N + " SSVs");
+
+                ACLMessage reply = createReliabilityReply(msg, (double) successCount / N);
+                reply.addUserDefinedParameter("resampled-links", samples.wasFull() ? "all"
+                        : Arrays.toString(samples.getResampledLinks()));
+                reply.addUserDefinedParameter("reevaluated", String.valueOf(samples.getReevaluated()));
+                sendResult(msg, reply, run);
+            });
+        }
+
+        // one shard of a coordinator run: blocks [firstBlock, blockEnd) of the fused blocks, the
+        // reply carries the success count only, the coordinator adds up the shards
+        private void processShardRequest(ACLMessage msg, SimulationData data, RunMetrics run) {
+            ModelCache.Model model = model(data, run);
+            ParallelEvaluator.RangeCounter counter = model.fused.blockCounter(data.N, model.engine(engine, d, T), data.seed);
+            int first = data.firstBlock;
+            long samples = Math.min((long) data.blockEnd * FusedEstimator.BLOCK_SIZE, data.N)
+                    - (long) first * FusedEstimator.BLOCK_SIZE;
+            run.setSamples(samples);
+            evaluate(msg, run, samples, data.blockEnd - first, (from, to) -> counter.count(first + from, first + to), 1, successCount -> {
+                ACLMessage reply = msg.createReply();
+                reply.setPerformative(ACLMessage.INFORM);
+                reply.setContent(String.valueOf(successCount));
+                sendResult(msg, reply, run);
+            });
+        }
+
+        // Fused SSVs evaluated for a list of demands at once, the reply is the whole ReliabilityCurve
+        // so the reliability for any deadline can be read from it. d and T of this agent are not used.
+        private void processCurveRequest(ACLMessage msg, SimulationData data, RunMetrics run) {
+            ModelCache.Model model = model(data, run);
 
-                    double reliability = (double) successCount / N;
-                    System.out.println("Estimated network reliability is equal to " + reliability);
+            CurveEstimator curves;
+            try {
+                curves = new CurveEstimator(model.mfn, data.demands);
+            } catch (IllegalArgumentException e) {
+                System.err.println("TT Agent: " + e.getMessage());
+                sendFailure(msg, e.getMessage(), run);
+                return;
+            }
+            System.out.println("Drawing " + data.N + " SSVs for the reliability curves of " + data.demands.length + " demands");
+            run.setSamples(data.N);
+            whenEvaluated(msg, curves.estimate(model.fused, data.N, data.seed, evaluator), run, curve -> data.N, curve -> {
+                for (int k = 0; k < curve.getDemandCount(); k++) {
+                    System.out.println(curve.format(k, data.deadlines));
+                }
+                ACLMessage reply = msg.createReply();
+                reply.setPerformative(ACLMessage.INFORM);
+                RunMetrics.Timer timer = run.start(RunMetrics.Phase.SERIALIZATION);
+                try {
+                    reply.setContentObject(curve);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    sendFailure(msg, "cannot serialize the answer: " + e.getMessage(), run);
+                    return;
+                }
+                timer.stop(0, RunMetrics.contentSize(reply));
+                sendResult(msg, reply, run);
+            });
+        }
 
-                    ACLMessage reply = msg.createReply();
-                    reply.setPerformative(ACLMessage.INFORM);
-                    reply.setContent(String.valueOf(reliability));
-                    send(reply);
+        // link importance for this agent's (d, T) from one pass over N SSVs, see SensitivityEstimator
+        private void processSensitivityRequest(ACLMessage msg, SimulationData data, RunMetrics run) {
+            ModelCache.Model model = model(data, run);
 
-                    // decide if agent need to stay active or should be deleted after performing task
-                } catch (UnreadableException e) {
+            SensitivityEstimator sensitivity;
+            try {
+                sensitivity = new SensitivityEstimator(model.mfn, model.pmf, d, T, data.sensitivityStep);
+            } catch (IllegalArgumentException e) {
+                System.err.println("TT Agent: " + e.getMessage());
+                sendFailure(msg, e.getMessage(), run);
+                return;
+            }
+            System.out.println("Drawing " + data.N + " SSVs for the importance of " + data.m + " links");
+            run.setSamples(data.N);
+            whenEvaluated(msg, sensitivity.estimate(data.N, data.seed, evaluator), run, report -> data.N, report -> {
+                System.out.println(report.format());
+                ACLMessage reply = msg.createReply();
+                reply.setPerformative(ACLMessage.INFORM);
+                RunMetrics.Timer timer = run.start(RunMetrics.Phase.SERIALIZATION);
+                try {
+                    reply.setContentObject(report);
+                } catch (IOException e) {
                     e.printStackTrace();
+                    sendFailure(msg, "cannot serialize the answer: " + e.getMessage(), run);
+                    return;
                 }
+                timer.stop(0, RunMetrics.contentSize(reply));
+                sendResult(msg, reply, run);
+            });
+        }
+
+        // fused rounds until the interval is narrow enough, run off the agent thread
+        private void processAdaptiveRequest(ACLMessage msg, SimulationData data, FusedEstimator estimator,
+                                            StateEvaluator fusedEngine, RunMetrics run) {
+            SequentialEstimator sequential = new SequentialEstimator(data.epsilon, data.delta, data.N);
+            whenEvaluated(msg, CompletableFuture.supplyAsync(() -> sequential.estimate(estimator, fusedEngine, data.seed, evaluator)),
+                    run, result -> result.samplesUsed, result -> {
+                        long savedMillis = result.estimatedNanosSaved() / 1_000_000;
+                        System.out.println("Adaptive run used " + result.samplesUsed + " of " + result.worstCaseN
+                                + " SSVs, half-width " + result.halfWidth + ", estimated time saved " + savedMillis + " ms");
+
+                        run.setSamples(result.samplesUsed);
+                        ACLMessage reply = createReliabilityReply(msg, result.reliability);
+                        reply.addUserDefinedParameter("samples-used", String.valueOf(result.samplesUsed));
+                        reply.addUserDefinedParameter("time-saved-ms", String.valueOf(savedMillis));
+                        sendResult(msg, reply, run);
+                    });
+        }
+
+        // variance-reduction strategies need weights per SSV, so they are evaluated with the plan one SSV at a time
+        private void processWeightedRequest(ACLMessage msg, SimulationData data, ModelCache.Model model, RunMetrics run) {
+            SamplingStrategy strategy = SamplingStrategy.forName(data.sampling, model.mfn, model.pmf, data.tilt);
+            WeightedEstimator weighted = new WeightedEstimator(model.mfn, model.plan(d, T));
+            whenEvaluated(msg, CompletableFuture.supplyAsync(() -> weighted.estimate(data.sampling, strategy, data.N, data.seed, evaluator)),
+                    run, result -> data.N, result -> {
+                        long needed = result.samplesFor(data.epsilon, data.delta);
+                        System.out.println("Sampling " + result.strategy + ": variance of the estimate " + result.variance
+                                + ", variance per sample " + result.variancePerSample() + ", samples needed " + needed);
+
+                        ACLMessage reply = createReliabilityReply(msg, result.estimate);
+                        reply.addUserDefinedParameter("variance", String.valueOf(result.variance));
+                        reply.addUserDefinedParameter("samples-for-epsilon", String.valueOf(needed));
+                        sendResult(msg, reply, run);
+                    });
+        }
+
+        // counts successes on the worker threads and then runs onResult on the agent thread
+        private void evaluate(ACLMessage msg, RunMetrics run, long samples, int size, ParallelEvaluator.RangeCounter counter,
+                              Consumer<Long> onResult) {
+            evaluate(msg, run, samples, size, counter, ParallelEvaluator.MIN_ROWS_PER_TASK, onResult);
+        }
+
+        private void evaluate(ACLMessage msg, RunMetrics run, long samples, int size, ParallelEvaluator.RangeCounter counter,
+                              int minPerTask, Consumer<Long> onResult) {
+            whenEvaluated(msg, evaluator.countSuccessesAsync(size, run.measure(counter), minPerTask), run, count -> samples, onResult);
+        }
+
+        // Work on other threads is evaluation time until it completes; its result then waits in the
+        // O2A queue (queue wait) until onResult runs on the agent thread. A failed run is answered
+        // with FAILURE.
+        private <R> void whenEvaluated(ACLMessage msg, CompletableFuture<R> work, RunMetrics run, ToLongFunction<R> samples,
+                                       Consumer<R> onResult) {
+            long start = System.nanoTime();
+            work.whenComplete((result, error) -> {
+                long done = System.nanoTime();
+                if (error != null) {
+                    error.printStackTrace();
+                    run.evaluationDone(done - start, 0);
+                    Throwable cause = error.getCause() != null ? error.getCause() : error;
+                    runOnAgentThread(() -> sendFailure(msg, "evaluation failed: " + cause, run));
+                    return;
+                }
+                run.evaluationDone(done - start, samples.applyAsLong(result));
+                runOnAgentThread(() -> {
+                    run.record(RunMetrics.Phase.QUEUE_WAIT, System.nanoTime() - done, 0, 0, 0);
+                    onResult.accept(result);
+                });
+            });
+        }
+
+        // Requests whose samples come from a seed (fused, shard, curve and sensitivity requests) are
+        // looked up in the cache; on a miss the key is kept until the answer is sent. Streamed, shared
+        // and whole requests carry their samples and are always computed.
+        private boolean answeredFromCache(ACLMessage msg, SimulationData data, RunMetrics run) {
+            String ontology = msg.getOntology();
+            if (cache == null || !(SimulationData.FUSED_REQUEST.equals(ontology)
+                    || SimulationData.SHARD_REQUEST.equals(ontology) || SimulationData.CURVE_REQUEST.equals(ontology)
+                    || SimulationData.SENSITIVITY_REQUEST.equals(ontology))) {
+                return false;
+            }
+            String key;
+            try {
+                key = ResultCache.key(ontology, data, d, T);
+            } catch (IOException e) {
+                e.printStackTrace(); // e.g. MP file not readable, the request itself will report it
+                return false;
+            }
+            ResultCache.Entry entry = cache.get(key);
+            if (entry == null) {
+                cacheKeys.put(msg, key);
+                return false;
+            }
+            System.out.println("Answered from the " + cache.stats());
+            ACLMessage reply = entry.fill(msg.createReply());
+            RunMetrics.stamp(reply);
+            send(reply);
+            System.out.println(run.finish(true));
+            return true;
+        }
+
+        // A request that cannot be answered ends its run as failed; the sender gets FAILURE with the
+        // reason, a stream it belonged to is dropped.
+        private void sendFailure(ACLMessage msg, String reason, RunMetrics run) {
+            cacheKeys.remove(msg);
+            if (run != null && run.isFinished()) {
+                return; // already answered, e.g. another chunk of the same stream failed first
+            }
+            StreamState stream = msg.getConversationId() != null ? streams.remove(msg.getConversationId()) : null;
+            if (stream != null && stream.exporter != null) {
+                stream.exporter.close();
+            }
+            ACLMessage failure = msg.createReply();
+            failure.setPerformative(ACLMessage.FAILURE);
+            failure.setContent(reason);
+            RunMetrics.stamp(failure);
+            send(failure);
+            if (run != null) {
+                System.out.println(run.finish(false));
+            }
+        }
+
+        // the answer ends the run, its summary is printed
+        private void sendResult(ACLMessage msg, ACLMessage reply, RunMetrics run) {
+            String key = cacheKeys.remove(msg);
+            if (key != null) {
+                cache.put(key, new ResultCache.Entry(reply));
+            }
+            RunMetrics.stamp(reply);
+            send(reply);
+            System.out.println(run.finish(true));
+        }
+
+        private void sendReliability(ACLMessage msg, double reliability, RunMetrics run) {
+            sendResult(msg, createReliabilityReply(msg, reliability), run);
+
+            // decide if agent need to stay active or should be deleted after performing task
+        }
+
+        private ACLMessage createReliabilityReply(ACLMessage msg, double reliability) {
+            System.out.println("Estimated network reliability is equal to " + reliability);
+
+            ACLMessage reply = msg.createReply();
+            reply.setPerformative(ACLMessage.INFORM);
+            reply.setContent(String.valueOf(reliability));
+            return reply;
+        }
+    }
+
+    private void runOnAgentThread(Runnable task) {
+        try {
+            putO2AObject(task, false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // runs the tasks posted by runOnAgentThread
+    private class CompletedEvaluationsBehaviour extends CyclicBehaviour {
+        @Override
+        public void action() {
+            Object task = getO2AObject();
+            if (task != null) {
+                ((Runnable) task).run();
             } else {
                 block();
             }
         }
     }
 
-    private void saveSSVsToCSV(double[][] ssvs, String filename) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
-            for (double[] vector : ssvs) {
-                StringBuilder sb = new StringBuilder();
-                for (int i = 0; i < vector.length; i++) {
-                    sb.append(vector[i]);
-                    if (i < vector.length - 1) {
-                        sb.append(",");
-                    }
-                }
-                writer.write(sb.toString());
-                writer.newLine();
-            }
-             System.out.println("SSVs saved to " + filename);
+    // null when the export is off; writing happens on the exporter's own thread
+    private SSVExporter openExporter(double[] C, RunMetrics run) {
+        if (exportFormat == null) {
+            return null;
+        }
+        try {
+            SSVExporter exporter = new SSVExporter(Path.of(exportFile), exportFormat, exportEvery, exportQueue, C);
+            exporter.recordTo(run);
+            return exporter;
         } catch (IOException e) {
             e.printStackTrace();
+            return null;
         }
     }
-}
\ No newline at end of file
+}
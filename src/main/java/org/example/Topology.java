@@ -0,0 +1,137 @@
+package org.example;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+
+// Network topology as an edge list, the input of MinimalPaths. Text file (.topo):
+//   # comment
+//   source <node>
+//   sink <node>
+//   undirected         optional: every link can be used both ways, otherwise only from -> to
+//   max-links <k>      optional: only paths of at most k links are enumerated
+//   <from> <to>        one line per link, link i is the i-th of these lines (as in the MP file)
+// Nodes are names without spaces; tokens are separated by spaces, ',' or ';'.
+// The outgoing arcs of every node are kept in flat arrays (arcs of node v at
+// arcStart[v] .. arcStart[v + 1]), like the paths in PathIndex.
+public class Topology {
+    public static final String EXTENSION = ".topo";
+
+    public final int nodeCount;
+    public final int linkCount;
+    public final int source;
+    public final int sink;
+    public final int maxLinks; // Integer.MAX_VALUE without a limit
+    final int[] arcStart;
+    final int[] arcLink;       // link of the arc
+    final int[] arcNode;       // node the arc leads to
+
+    public Topology(int nodeCount, int[] from, int[] to, boolean undirected, int source, int sink, int maxLinks) {
+        if (source < 0 || source >= nodeCount || sink < 0 || sink >= nodeCount || source == sink) {
+            throw new IllegalArgumentException("Source and sink must be two different nodes of the topology");
+        }
+        if (maxLinks <= 0) {
+            throw new IllegalArgumentException("max-links must be positive");
+        }
+        this.nodeCount = nodeCount;
+        this.linkCount = from.length;
+        this.source = source;
+        this.sink = sink;
+        this.maxLinks = maxLinks;
+
+        int arcs = undirected ? 2 * linkCount : linkCount;
+        arcStart = new int[nodeCount + 1];
+        arcLink = new int[arcs];
+        arcNode = new int[arcs];
+        for (int i = 0; i < linkCount; i++) {
+            arcStart[from[i] + 1]++;
+            if (undirected) {
+                arcStart[to[i] + 1]++;
+            }
+        }
+        for (int v = 0; v < nodeCount; v++) {
+            arcStart[v + 1] += arcStart[v];
+        }
+        int[] next = arcStart.clone();
+        // in link order, so paths come out in the same order for the same file
+        for (int i = 0; i < linkCount; i++) {
+            int a = next[from[i]]++;
+            arcLink[a] = i;
+            arcNode[a] = to[i];
+            if (undirected) {
+                a = next[to[i]]++;
+                arcLink[a] = i;
+                arcNode[a] = from[i];
+            }
+        }
+    }
+
+    public static Topology load(Path file) throws IOException {
+        Map<String, Integer> nodes = new HashMap<>();
+        List<int[]> links = new ArrayList<>();
+        String source = null;
+        String sink = null;
+        boolean undirected = false;
+        int maxLinks = Integer.MAX_VALUE;
+
+        try (BufferedReader in = Files.newBufferedReader(file)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                int comment = line.indexOf('#');
+                if (comment >= 0) {
+                    line = line.substring(0, comment);
+                }
+                StringTokenizer st = new StringTokenizer(line, ",; \t");
+                int count = st.countTokens();
+                if (count == 0) continue;
+                String first = st.nextToken();
+                if (first.equals("undirected") && count == 1) {
+                    undirected = true;
+                } else if (first.equals("source") && count == 2) {
+                    source = st.nextToken();
+                } else if (first.equals("sink") && count == 2) {
+                    sink = st.nextToken();
+                } else if (first.equals("max-links") && count == 2) {
+                    try {
+                        maxLinks = Integer.parseInt(st.nextToken());
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Invalid max-links in " + file + " at line " + lineNumber);
+                    }
+                } else if (count == 2) {
+                    links.add(new int[]{node(nodes, first), node(nodes, st.nextToken())});
+                } else {
+                    throw new IOException("Expected a link '<from> <to>' in " + file + " at line " + lineNumber + ": " + line.trim());
+                }
+            }
+        }
+        if (source == null || sink == null) {
+            throw new IOException("Topology " + file + " needs a source and a sink line");
+        }
+        if (!nodes.containsKey(source) || !nodes.containsKey(sink)) {
+            throw new IOException("Source or sink of " + file + " is on no link");
+        }
+        int[] from = new int[links.size()];
+        int[] to = new int[links.size()];
+        for (int i = 0; i < from.length; i++) {
+            from[i] = links.get(i)[0];
+            to[i] = links.get(i)[1];
+        }
+        try {
+            return new Topology(nodes.size(), from, to, undirected, nodes.get(source), nodes.get(sink), maxLinks);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage() + ": " + file);
+        }
+    }
+
+    private static int node(Map<String, Integer> nodes, String name) {
+        return nodes.computeIfAbsent(name, k -> nodes.size());
+    }
+}
@@ -0,0 +1,122 @@
+package org.example;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+// Evaluates SSVs column by column with the Vector API (jdk.incubator.vector). Blocks of
+// BLOCK samples are transposed so that the states of each link are contiguous; a path then
+// compares its links' columns with the plan's minimum states, one vector of samples per
+// instruction, and the lanes where every link holds are ORed into the success mask.
+// The plan's minimum states are formula (3), L_p + ceil(d / min capacity) <= T, folded
+// into one integer per link, so the counts are exactly those of "plan".
+// Needs java --add-modules jdk.incubator.vector; without it StateEvaluator.forEngine
+// uses the plan instead.
+public class VectorEvaluator implements StateEvaluator {
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    static final int BLOCK = 1024; // samples per transposed block, a multiple of every vector length
+
+    private final EvaluationPlan plan;
+    private final int m;
+    private final int[] pathStart;
+    private final int[] links;     // CSR entries of the plan without those any state meets
+    private final int[] minState;
+    private final ThreadLocal<Block> blocks = ThreadLocal.withInitial(Block::new); // the engine is shared by the workers
+
+    public VectorEvaluator(EvaluationPlan plan, int m) {
+        this.plan = plan;
+        this.m = m;
+        int[] planStart = plan.pathStarts();
+        int[] planLinks = plan.pathLinks();
+        int[] planMin = plan.minStates();
+
+        int paths = planStart.length - 1;
+        pathStart = new int[paths + 1];
+        int kept = 0;
+        for (int j = 0; j < planLinks.length; j++) {
+            if (planMin[j] > 0) kept++;
+        }
+        links = new int[kept];
+        minState = new int[kept];
+        int pos = 0;
+        for (int p = 0; p < paths; p++) {
+            pathStart[p] = pos;
+            for (int j = planStart[p]; j < planStart[p + 1]; j++) {
+                if (planMin[j] > 0) {
+                    links[pos] = planLinks[j];
+                    minState[pos] = planMin[j];
+                    pos++;
+                }
+            }
+        }
+        pathStart[paths] = pos;
+    }
+
+    // columns of one block; a link's column is transposed when a path first needs it, so a block
+    // the first paths accept costs only their links
+    private class Block {
+        final int[][] columns = new int[m][BLOCK];
+        final boolean[] loaded = new boolean[m];
+        SSVStore store;
+        int base;
+        int size;
+
+        void start(SSVStore store, int base, int size) {
+            this.store = store;
+            this.base = base;
+            this.size = size;
+            Arrays.fill(loaded, false);
+        }
+
+        int[] column(int link) {
+            if (!loaded[link]) {
+                store.column(link, base, base + size, columns[link]);
+                loaded[link] = true;
+            }
+            return columns[link];
+        }
+    }
+
+    // lanes of the preferred species, 1 if the platform has no vector registers for ints
+    static int lanes() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public int countSuccesses(SSVStore store, int from, int to) {
+        if (plan.isAlwaysMet()) {
+            return to - from;
+        }
+        Block block = blocks.get();
+        int successCount = 0;
+        for (int base = from; base < to; base += BLOCK) {
+            block.start(store, base, Math.min(BLOCK, to - base));
+            successCount += countBlock(block);
+        }
+        block.store = null;
+        return successCount;
+    }
+
+    private int countBlock(Block block) {
+        int size = block.size;
+        int paths = pathStart.length - 1;
+        int successCount = 0;
+        for (int v = 0; v < size; v += SPECIES.length()) {
+            VectorMask<Integer> valid = SPECIES.indexInRange(v, size);
+            VectorMask<Integer> open = valid; // lanes no path has accepted yet
+            for (int p = 0; p < paths && open.anyTrue(); p++) {
+                VectorMask<Integer> acc = open;
+                for (int j = pathStart[p]; j < pathStart[p + 1] && acc.anyTrue(); j++) {
+                    IntVector states = IntVector.fromArray(SPECIES, block.column(links[j]), v);
+                    acc = acc.and(states.compare(VectorOperators.GE, minState[j]));
+                }
+                open = open.andNot(acc);
+            }
+            successCount += valid.trueCount() - open.trueCount();
+        }
+        return successCount;
+    }
+}
@@ -0,0 +1,86 @@
+package org.example;
+
+// Fused Monte Carlo with a SamplingStrategy: the estimate is 1 - the mean of weight * failure
+// over N rows. The failure form is what importance sampling needs for reliable networks
+// (failures are the rare event it makes frequent); with weights = 1 it equals the success
+// rate. Every block of FusedEstimator.BLOCK_SIZE rows is one replicate, and the spread of
+// the block means gives the empirical variance of the estimate, which is valid also for the
+// coupled rows of stratified, Latin hypercube and antithetic sampling.
+public class WeightedEstimator {
+
+    public static class Result {
+        public String strategy;
+        public int samples;
+        public int replicates;
+        public double estimate;
+        public double variance; // variance of the estimate, NaN with fewer than 2 replicates
+
+        // variance of a single sample's contribution, comparable between strategies
+        public double variancePerSample() {
+            return variance * samples;
+        }
+
+        // samples this strategy needs for a half-width of epsilon at confidence 1 - delta
+        public long samplesFor(double epsilon, double delta) {
+            double z = MFN.normalICDF(1.0 - (delta / 2.0));
+            return (long) Math.ceil(z * z * variancePerSample() / (epsilon * epsilon));
+        }
+    }
+
+    private final MFN mfn;
+    private final EvaluationPlan plan;
+
+    public WeightedEstimator(MFN mfn, EvaluationPlan plan) {
+        this.mfn = mfn;
+        this.plan = plan;
+    }
+
+    public Result estimate(String strategyName, SamplingStrategy strategy, int N, long seed, ParallelEvaluator evaluator) {
+        int blocks = FusedEstimator.blockCount(N);
+        double[] blockSums = new double[blocks]; // weighted failures, every block writes only its own slot
+
+        evaluator.forEachRange(blocks, (from, to) -> {
+            int rows = Math.min(N, FusedEstimator.BLOCK_SIZE);
+            SSVStore buffer = SSVStore.forNetwork(rows, mfn);
+            double[] weights = new double[rows];
+            for (int b = from; b < to; b++) {
+                int size = Math.min(FusedEstimator.BLOCK_SIZE, N - b * FusedEstimator.BLOCK_SIZE);
+                strategy.draw(buffer, weights, size, FusedEstimator.blockRandom(seed, b));
+                double sum = 0;
+                for (int n = 0; n < size; n++) {
+                    if (!plan.meetsDeadline(buffer, n)) {
+                        sum += weights[n];
+                    }
+                }
+                blockSums[b] = sum;
+            }
+        }, 1);
+
+        Result result = new Result();
+        result.strategy = strategyName;
+        result.samples = N;
+        result.replicates = blocks;
+
+        double total = 0;
+        for (double sum : blockSums) {
+            total += sum;
+        }
+        double failure = total / N;
+        result.estimate = 1.0 - failure;
+
+        if (blocks < 2) {
+            result.variance = Double.NaN;
+            return result;
+        }
+        // Var(block mean) = sigma^2 / size, sigma^2 estimated from the spread of the block means
+        double squares = 0;
+        for (int b = 0; b < blocks; b++) {
+            int size = Math.min(FusedEstimator.BLOCK_SIZE, N - b * FusedEstimator.BLOCK_SIZE);
+            double diff = blockSums[b] / size - failure;
+            squares += size * diff * diff;
+        }
+        double sigma2 = squares / (blocks - 1);
+        result.variance = sigma2 / N;
+        return result;
+    }
+}
@@ -0,0 +1,109 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The alias draws against the PMF of formula (1) they are built from
+class AliasSamplerTest {
+    private static final int DRAWS = 200_000;
+
+    // example network of SSVGeneratorGui plus a wide link and a nearly perfect one
+    private static MFN network() {
+        return new MFN(7,
+                new int[]{4, 3, 2, 3, 2, 40, 6},
+                new double[]{10, 15, 25, 15, 20, 5, 10},
+                new int[]{5, 7, 6, 5, 8, 3, 2},
+                new double[]{0.7, 0.65, 0.67, 0.71, 0.75, 0.8, 0.999},
+                new double[]{0.1, 0.3, 0.5, 0.7, 0.9, 0.4, 0.2});
+    }
+
+    @Test
+    void drawsFollowThePMF() {
+        MFN mfn = network();
+        double[][] pmf = mfn.calculatePMF();
+        AliasSampler sampler = new AliasSampler(pmf);
+        SplittableRandom rng = new SplittableRandom(42);
+        for (int i = 0; i < mfn.m; i++) {
+            long[] counts = new long[pmf[i].length];
+            for (int n = 0; n < DRAWS; n++) {
+                counts[sampler.sample(i, rng)]++;
+            }
+
+            // chi-square over states with an expected count of at least 5, the rest in one bin
+            double chi2 = 0;
+            int bins = 0;
+            double restExpected = 0;
+            long restObserved = 0;
+            double tv = 0;
+            for (int k = 0; k < counts.length; k++) {
+                double p = Math.max(pmf[i][k], 0);
+                double expected = p * DRAWS;
+                tv += Math.abs(counts[k] / (double) DRAWS - p);
+                if (expected >= 5) {
+                    chi2 += (counts[k] - expected) * (counts[k] - expected) / expected;
+                    bins++;
+                } else {
+                    restExpected += expected;
+                    restObserved += counts[k];
+                }
+            }
+            if (restExpected >= 5) {
+                chi2 += (restObserved - restExpected) * (restObserved - restExpected) / restExpected;
+                bins++;
+            } else {
+                assertTrue(restObserved <= 20, "link " + i + ": " + restObserved + " draws of states with p ~ 0");
+            }
+            int df = bins - 1;
+            if (df > 0) {
+                assertTrue(chi2 < chiSquareQuantile999(df), "link " + i + ": chi2 " + chi2 + " with " + df + " df");
+            }
+            assertTrue(tv / 2 < 0.01, "link " + i + ": total variation " + tv / 2);
+        }
+    }
+
+    // 0.999 quantile of chi-square with df degrees of freedom (Wilson-Hilferty)
+    private static double chiSquareQuantile999(int df) {
+        double z = 3.090232306167813;
+        double c = 2.0 / (9 * df);
+        return df * Math.pow(1 - c + z * Math.sqrt(c), 3);
+    }
+
+    @Test
+    void degeneratePMFAlwaysGivesItsState() {
+        AliasSampler sampler = new AliasSampler(new double[][]{{0, 0, 1, 0}, {1}, {0, 0, 0, 1}});
+        SplittableRandom rng = new SplittableRandom(7);
+        for (int n = 0; n < 10_000; n++) {
+            assertEquals(2, sampler.sample(0, rng));
+            assertEquals(0, sampler.sample(1, rng));
+            assertEquals(3, sampler.sample(2, rng));
+        }
+    }
+
+    @Test
+    void fixedSeedGivesTheSameStream() {
+        MFN mfn = network();
+        AliasSampler sampler = new AliasSampler(mfn.calculatePMF());
+        SSVStore first = mfn.randomStates(5000, sampler, new SplittableRandom(2024));
+        SSVStore second = mfn.randomStates(5000, new AliasSampler(mfn.calculatePMF()), new SplittableRandom(2024));
+        for (int n = 0; n < first.size(); n++) {
+            for (int i = 0; i < mfn.m; i++) {
+                assertEquals(first.getState(n, i), second.getState(n, i));
+            }
+        }
+
+        double[] a = new double[mfn.m];
+        double[] b = new double[mfn.m];
+        SplittableRandom rngA = new SplittableRandom(99);
+        SplittableRandom rngB = new SplittableRandom(99);
+        for (int n = 0; n < 1000; n++) {
+            sampler.fillSSV(a, mfn.C, rngA);
+            sampler.fillSSV(b, mfn.C, rngB);
+            assertArrayEquals(a, b);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The kernels of Numerics against reference values (C library erfc, mpmath) and against the
+// factorial version of formula (1) that MFN used before
+class NumericsTest {
+
+    @Test
+    void normalQuantile() {
+        assertEquals(1.959963984540054, Numerics.normalICDF(0.975), 1e-14);
+        assertEquals(-1.959963984540054, Numerics.normalICDF(0.025), 1e-14);
+        assertEquals(0.0, Numerics.normalICDF(0.5), 1e-15);
+        assertEquals(2.5758293035489004, Numerics.normalICDF(0.995), 1e-14);
+        assertEquals(-37.47933256432158, Numerics.normalICDF(1e-307), 1e-10);
+    }
+
+    @Test
+    void normalCDFInTheTails() {
+        assertEquals(0.5, Numerics.normalCDF(0), 1e-16);
+        assertEquals(0.975, Numerics.normalCDF(1.959963984540054), 1e-15);
+        assertRelative(2.866515718791939e-07, Numerics.normalCDF(-5), 1e-13);
+        assertRelative(7.619853024160526e-24, Numerics.normalCDF(-10), 1e-13);
+        assertRelative(4.906713927148187e-198, Numerics.normalCDF(-30), 1e-12);
+        assertEquals(1.0, Numerics.normalCDF(30), 0);
+        assertEquals(0.0, Numerics.normalCDF(-40), 0);
+    }
+
+    @Test
+    void quantileInvertsTheCDF() {
+        for (double u = 1e-300; u < 0.5; u *= 7.3) {
+            assertRelative(u, Numerics.normalCDF(Numerics.normalICDF(u)), 1e-12);
+        }
+    }
+
+    @Test
+    void linkPMFMatchesFormulaOneForSmallW() {
+        // (r, rho) of the example network and a nearly perfect link
+        double[][] params = {{0.7, 0.1}, {0.65, 0.3}, {0.67, 0.5}, {0.71, 0.7}, {0.75, 0.9}, {0.999, 0.2}};
+        for (int w = 1; w <= 20; w++) {
+            for (double[] rr : params) {
+                double beta = beta(rr[0], rr[1]);
+                double[] pmf = Numerics.linkPMF(w, rr[0], beta);
+                double[] expected = factorialPMF(w, rr[0], beta);
+                assertEquals(w + 1, pmf.length);
+                for (int k = 0; k <= w; k++) {
+                    assertEquals(expected[k], pmf[k], 1e-14, "w=" + w + " r=" + rr[0] + " beta=" + beta + " k=" + k);
+                }
+            }
+        }
+    }
+
+    @Test
+    void linkPMFSumsToOneForLargeW() {
+        for (int w : new int[]{1000, 50000}) {
+            double[] pmf = Numerics.linkPMF(w, 0.9, beta(0.9, 0.5));
+            double sum = 0;
+            double mean = 0;
+            for (int k = 0; k <= w; k++) {
+                assertTrue(pmf[k] >= 0 && Double.isFinite(pmf[k]), "w=" + w + " k=" + k + ": " + pmf[k]);
+                sum += pmf[k];
+                mean += k * pmf[k];
+            }
+            assertEquals(1.0, sum, 1e-12, "w=" + w);
+            // the binomial part has mean w r beta and carries 1/beta of the mass, so the mean is w r
+            assertEquals(w * 0.9, mean, 1e-9 * w, "w=" + w);
+        }
+    }
+
+    @Test
+    void binomialCoefficients() {
+        assertEquals(1, Numerics.binomialCoefficient(20, 0));
+        assertEquals(184756, Numerics.binomialCoefficient(20, 10));
+        assertEquals(0, Numerics.binomialCoefficient(5, 6));
+        assertEquals(0, Numerics.binomialCoefficient(5, -1));
+    }
+
+    // as in the MFN constructor
+    private static double beta(double r, double rho) {
+        return 1.0 + rho * (1.0 - r) / r;
+    }
+
+    // formula (1) as MFN.calculatePMF computed it with factorials
+    private static double[] factorialPMF(int w, double r, double beta) {
+        double[] pmf = new double[w + 1];
+        double sum = 0;
+        for (int k = 1; k <= w; k++) {
+            double binom = factorial(w) / (factorial(k) * factorial(w - k));
+            pmf[k] = (1.0 / beta) * binom * Math.pow(r * beta, k) * Math.pow(1.0 - r * beta, w - k);
+            sum += pmf[k];
+        }
+        pmf[0] = 1.0 - sum;
+        return pmf;
+    }
+
+    private static double factorial(int n) {
+        double result = 1;
+        for (int i = 2; i <= n; i++) {
+            result *= i;
+        }
+        return result;
+    }
+
+    private static void assertRelative(double expected, double actual, double tolerance) {
+        assertTrue(Math.abs(actual - expected) <= tolerance * Math.abs(expected),
+                "expected " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,207 @@
+package org.example;
+
+import jade.lang.acl.ACLMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Round trips of the binary SimulationData format, plain and deflated, and the messages a
+// reader must reject
+class SimulationDataCodecTest {
+
+    // example network of SSVGeneratorGui with every optional field set
+    private static SimulationData fullRequest() {
+        SimulationData data = new SimulationData(5, new int[]{4, 3, 2, 3, 2}, new double[]{10, 15, 25, 15, 20},
+                new int[]{5, 7, 6, 5, 8}, new double[]{0.7, 0.65, 0.67, 0.71, 0.75}, new double[]{0.1, 0.3, 0.5, 0.7, 0.9},
+                "MPs ł.csv", 1_000_000, 5000);
+        data.seed = -7L;
+        data.adaptive = true;
+        data.epsilon = 0.01;
+        data.delta = 0.05;
+        data.sampling = "importance";
+        data.tilt = 1.5;
+        data.firstBlock = 3;
+        data.blockEnd = 9;
+        data.demands = new double[]{42, 50, 60};
+        data.deadlines = new double[]{15.5, Double.POSITIVE_INFINITY};
+        data.sensitivityStep = 0.1;
+        data.incremental = true;
+        data.sharedPath = "/tmp/ssvs.bin";
+        data.sharedOffset = 1L << 33;
+        data.sharedLength = 40;
+        data.sharedWidth = 1;
+        return data;
+    }
+
+    private static void assertSameData(SimulationData expected, SimulationData actual) {
+        assertEquals(expected.m, actual.m);
+        assertArrayEquals(expected.W, actual.W);
+        assertArrayEquals(expected.C, actual.C);
+        assertArrayEquals(expected.L, actual.L);
+        assertArrayEquals(expected.R, actual.R);
+        assertArrayEquals(expected.rho, actual.rho);
+        assertEquals(expected.mpsFilePath, actual.mpsFilePath);
+        assertEquals(expected.N, actual.N);
+        assertEquals(expected.chunkSize, actual.chunkSize);
+        assertEquals(expected.seed, actual.seed);
+        assertEquals(expected.adaptive, actual.adaptive);
+        assertEquals(expected.epsilon, actual.epsilon);
+        assertEquals(expected.delta, actual.delta);
+        assertEquals(expected.sampling, actual.sampling);
+        assertEquals(expected.tilt, actual.tilt);
+        assertEquals(expected.firstBlock, actual.firstBlock);
+        assertEquals(expected.blockEnd, actual.blockEnd);
+        assertArrayEquals(expected.demands, actual.demands);
+        assertArrayEquals(expected.deadlines, actual.deadlines);
+        assertEquals(expected.sensitivityStep, actual.sensitivityStep);
+        assertEquals(expected.incremental, actual.incremental);
+        assertEquals(expected.sharedPath, actual.sharedPath);
+        assertEquals(expected.sharedOffset, actual.sharedOffset);
+        assertEquals(expected.sharedLength, actual.sharedLength);
+        assertEquals(expected.sharedWidth, actual.sharedWidth);
+        assertArrayEquals(expected.pathOffsets, actual.pathOffsets);
+        assertArrayEquals(expected.pathLinks, actual.pathLinks);
+        assertArrayEquals(expected.generatedSSVs, actual.generatedSSVs);
+    }
+
+    private static SimulationData roundTrip(SimulationData data, boolean compress) {
+        ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
+        SimulationDataCodec.write(msg, data, compress);
+        assertEquals(SimulationDataCodec.ENCODING, msg.getEncoding());
+        try {
+            return SimulationDataCodec.read(msg);
+        } catch (jade.lang.acl.UnreadableException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Test
+    void roundTripWithoutSSVs() {
+        for (boolean compress : new boolean[]{false, true}) {
+            SimulationData data = fullRequest();
+            SimulationData decoded = roundTrip(data, compress);
+            assertNull(decoded.generatedSSVs);
+            assertNull(decoded.pathLinks);
+            assertSameData(data, decoded);
+        }
+    }
+
+    @Test
+    void roundTripWithDefaultsAndNulls() {
+        for (boolean compress : new boolean[]{false, true}) {
+            SimulationData data = new SimulationData(1, new int[]{1}, new double[]{1}, new int[]{0},
+                    new double[]{1}, new double[]{0}, null, 0, 0);
+            SimulationData decoded = roundTrip(data, compress);
+            assertNull(decoded.mpsFilePath);
+            assertNull(decoded.demands);
+            assertSameData(data, decoded);
+        }
+    }
+
+    @Test
+    void roundTripWithSSVRows() {
+        SplittableRandom rng = new SplittableRandom(3);
+        for (int rows : new int[]{0, 1, 1000}) {
+            for (boolean compress : new boolean[]{false, true}) {
+                SimulationData data = fullRequest();
+                double[][] ssvs = new double[rows][data.m];
+                for (double[] row : ssvs) {
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] = rng.nextInt(data.W[i] + 1) * data.C[i];
+                    }
+                }
+                data.generatedSSVs = ssvs;
+                data.N = rows;
+                SimulationData decoded = roundTrip(data, compress);
+                assertEquals(rows, decoded.generatedSSVs.length);
+                assertSameData(data, decoded);
+            }
+        }
+    }
+
+    @Test
+    void roundTripWithInlinePaths() {
+        SplittableRandom rng = new SplittableRandom(11);
+        int[] offsets = new int[401];
+        int[] links = new int[400 * 6];
+        int pos = 0;
+        for (int p = 0; p < 400; p++) {
+            offsets[p] = pos;
+            // unsorted links: steps down (negative deltas), large jumps and an empty path
+            int length = p == 7 ? 0 : 1 + rng.nextInt(6);
+            for (int j = 0; j < length; j++) {
+                links[pos++] = rng.nextInt(p % 2 == 0 ? 5 : 1_000_000);
+            }
+        }
+        offsets[400] = pos;
+        links = Arrays.copyOf(links, pos);
+        links[0] = 4;
+        links[1] = 0; // a delta of -4 right at the start
+
+        for (boolean compress : new boolean[]{false, true}) {
+            SimulationData data = fullRequest();
+            data.pathOffsets = offsets;
+            data.pathLinks = links;
+            data.generatedSSVs = new double[][]{{40, 45, 50, 45, 40}};
+            assertSameData(data, roundTrip(data, compress));
+        }
+    }
+
+    @Test
+    void truncatedMessagesAreRejected() {
+        SimulationData data = fullRequest();
+        data.pathOffsets = new int[]{0, 3, 5};
+        data.pathLinks = new int[]{4, 1, 2, 3, 0};
+        data.generatedSSVs = new double[][]{{40, 45, 50, 45, 40}, {0, 0, 0, 0, 0}};
+        for (boolean compress : new boolean[]{false, true}) {
+            byte[] bytes = SimulationDataCodec.encode(data, compress);
+            // from just after the header to one byte short
+            for (int length = 6; length < bytes.length; length++) {
+                ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
+                msg.setByteSequenceContent(Arrays.copyOf(bytes, length));
+                int cut = length;
+                assertThrows(IllegalArgumentException.class, () -> SimulationDataCodec.read(msg),
+                        (compress ? "deflated" : "plain") + " message cut at " + cut + " of " + bytes.length);
+            }
+        }
+    }
+
+    @Test
+    void newerVersionsAreRejected() {
+        for (boolean compress : new boolean[]{false, true}) {
+            byte[] bytes = SimulationDataCodec.encode(fullRequest(), compress);
+            bytes[4] = (byte) (SimulationDataCodec.VERSION + 1);
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> SimulationDataCodec.decode(bytes));
+            assertTrue(e.getMessage().contains("version"), e.getMessage());
+        }
+        assertThrows(IllegalArgumentException.class, () -> SimulationDataCodec.decode(new byte[]{1, 2, 3, 4, 4, 0}));
+    }
+
+    @Test
+    void versionOneMessagesAreStillRead() {
+        SimulationData data = fullRequest();
+        data.sensitivityStep = 0;
+        data.incremental = false;
+        data.sharedPath = null;
+        data.sharedOffset = 0;
+        data.sharedLength = 0;
+        data.sharedWidth = 0;
+        byte[] current = SimulationDataCodec.encode(data, false);
+        // version 1 ends after the deadlines: drop sensitivityStep (8), incremental (1) and the
+        // shared handle (4 + 8 + 8 + 4) in front of the paths (-1) and the rows (-1)
+        int tail = 8 + 1 + 4 + 8 + 8 + 4;
+        int kept = current.length - 8 - tail;
+        byte[] v1 = new byte[current.length - tail];
+        System.arraycopy(current, 0, v1, 0, kept);
+        System.arraycopy(current, current.length - 8, v1, kept, 8);
+        v1[4] = 1;
+        assertSameData(data, SimulationDataCodec.decode(v1));
+    }
+}
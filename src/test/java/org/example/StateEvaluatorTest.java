@@ -0,0 +1,152 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The evaluation engines TT can choose from against MFN.countSuccesses, the formula (3) check
+// of every minimal path, on the same stores
+class StateEvaluatorTest {
+    // not multiples of the vector width or of the 64 SSVs of a bit-sliced word
+    private static final int[] SIZES = {1, 3, 17, 63, 64, 65, 257, 1031};
+
+    @Test
+    void enginesAgreeOnRandomStores() {
+        SplittableRandom rng = new SplittableRandom(2024);
+        // 1, 2 and 4 byte states
+        for (int w : new int[]{4, 300, 70_000}) {
+            for (int m : new int[]{5, 13, 40}) {
+                MFN mfn = network(m, w, 3 * m, rng);
+                double[][] pmf = mfn.calculatePMF();
+                for (int size : SIZES) {
+                    SSVStore store = new SSVStore(size, m, w);
+                    for (int n = 0; n < size; n++) {
+                        for (int i = 0; i < m; i++) {
+                            // half of the states near the thresholds of formula (3), which are a few components
+                            store.setState(n, i, rng.nextBoolean() ? rng.nextInt(Math.min(w, 6) + 1) : rng.nextInt(w + 1));
+                        }
+                    }
+                    assertEnginesAgree(mfn, pmf, store, "W=" + w + " m=" + m + " N=" + size);
+                }
+            }
+        }
+    }
+
+    @Test
+    void enginesAgreeOnAllZeroAndAllMaxStates() {
+        SplittableRandom rng = new SplittableRandom(7);
+        for (int w : new int[]{4, 300, 70_000}) {
+            MFN mfn = network(13, w, 40, rng);
+            double[][] pmf = mfn.calculatePMF();
+            for (int size : SIZES) {
+                SSVStore zero = new SSVStore(size, mfn.m, w);
+                SSVStore max = new SSVStore(size, mfn.m, w);
+                for (int n = 0; n < size; n++) {
+                    for (int i = 0; i < mfn.m; i++) {
+                        max.setState(n, i, w);
+                    }
+                }
+                assertEnginesAgree(mfn, pmf, zero, "all zero W=" + w + " N=" + size);
+                assertEnginesAgree(mfn, pmf, max, "all max W=" + w + " N=" + size);
+
+                double d = demand(mfn);
+                for (String engine : StateEvaluator.ENGINES) {
+                    StateEvaluator evaluator = StateEvaluator.forEngine(engine, new EvaluationPlan(mfn, pmf, d, Double.POSITIVE_INFINITY), mfn.m);
+                    assertEquals(size, evaluator.countSuccesses(max, 0, size), engine + " all max, T = infinity");
+                }
+            }
+        }
+    }
+
+    @Test
+    void simdEngineIsVectorized() {
+        // surefire runs with --add-modules jdk.incubator.vector, see pom.xml
+        assertTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent());
+        if (StateEvaluator.vectorApiAvailable()) {
+            MFN mfn = network(5, 4, 10, new SplittableRandom(1));
+            assertTrue(StateEvaluator.forEngine("simd", new EvaluationPlan(mfn, 10, 20), mfn.m) instanceof VectorEvaluator);
+        }
+    }
+
+    // every engine for several (d, T) over the whole store and over ranges not aligned to blocks
+    private static void assertEnginesAgree(MFN mfn, double[][] pmf, SSVStore store, String label) {
+        double d = demand(mfn);
+        int size = store.size();
+        int[][] ranges = {{0, size}, {size / 3, size - size / 5}, {Math.min(1, size), size}};
+        for (double T : deadlines(mfn, d)) {
+            EvaluationPlan plan = new EvaluationPlan(mfn, pmf, d, T);
+            for (int[] range : ranges) {
+                int expected = mfn.countSuccesses(store, range[0], range[1], d, T);
+                for (String engine : StateEvaluator.ENGINES) {
+                    StateEvaluator evaluator = StateEvaluator.forEngine(engine, plan, mfn.m);
+                    assertEquals(expected, evaluator.countSuccesses(store, range[0], range[1]),
+                            engine + " " + label + " d=" + d + " T=" + T + " [" + range[0] + ", " + range[1] + ")");
+                }
+            }
+        }
+    }
+
+    // from nothing meeting the deadline to everything that has a working path meeting it
+    private static double[] deadlines(MFN mfn, double d) {
+        double[] allUp = new double[mfn.m];
+        for (int i = 0; i < mfn.m; i++) {
+            allUp[i] = mfn.W[i] * mfn.C[i];
+        }
+        PathIndex paths = mfn.getPathIndex();
+        double[] times = new double[paths.size()];
+        for (int p = 0; p < times.length; p++) {
+            times[p] = mfn.calculateTransmissionTime(paths, p, d, allUp);
+        }
+        Arrays.sort(times);
+        return new double[]{0, times[0] - 1, times[0], times[times.length / 2], times[times.length - 1] + 50,
+                Double.POSITIVE_INFINITY};
+    }
+
+    private static double demand(MFN mfn) {
+        double sum = 0;
+        for (double c : mfn.C) {
+            sum += c;
+        }
+        return 2 * sum / mfn.m;
+    }
+
+    // random links and paths of 1 to 8 distinct links
+    private static MFN network(int m, int w, int pathCount, SplittableRandom rng) {
+        int[] W = new int[m];
+        double[] C = new double[m];
+        int[] L = new int[m];
+        double[] R = new double[m];
+        double[] rho = new double[m];
+        for (int i = 0; i < m; i++) {
+            W[i] = w;
+            C[i] = 5 + rng.nextInt(26);
+            L[i] = 1 + rng.nextInt(9);
+            R[i] = rng.nextDouble(0.6, 0.95);
+            rho[i] = rng.nextDouble(0.1, 0.9);
+        }
+        MFN mfn = new MFN(m, W, C, L, R, rho);
+        List<int[]> paths = new ArrayList<>();
+        int[] links = new int[m];
+        for (int i = 0; i < m; i++) {
+            links[i] = i;
+        }
+        for (int p = 0; p < pathCount; p++) {
+            int length = 1 + rng.nextInt(Math.min(m, 8));
+            for (int j = 0; j < length; j++) {
+                int k = j + rng.nextInt(m - j);
+                int tmp = links[j];
+                links[j] = links[k];
+                links[k] = tmp;
+            }
+            paths.add(Arrays.copyOf(links, length));
+        }
+        mfn.MPs.addAll(paths);
+        return mfn;
+    }
+}